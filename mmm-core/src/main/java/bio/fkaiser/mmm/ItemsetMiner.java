@@ -1,8 +1,13 @@
 package bio.fkaiser.mmm;
 
 import bio.fkaiser.mmm.model.DataPoint;
+import bio.fkaiser.mmm.model.DataPointCache;
+import bio.fkaiser.mmm.model.Distribution;
 import bio.fkaiser.mmm.model.Item;
 import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.ItemsetKey;
+import bio.fkaiser.mmm.model.LabelDictionary;
+import bio.fkaiser.mmm.model.SquaredDistanceCache;
 import bio.fkaiser.mmm.model.configurations.ItemsetMinerConfiguration;
 import bio.fkaiser.mmm.model.metrics.*;
 import de.bioforscher.singa.structure.algorithms.superimposition.affinity.AffinityAlignment;
@@ -13,7 +18,6 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Implementation of the Aprioiri algorithm to generate frequent {@link Itemset}s. This uses {@link EvaluationMetric}s to evaluate candidates during generation.
@@ -28,6 +32,9 @@ public class ItemsetMiner<LabelType extends Comparable<LabelType>> {
     private final int maximalEpochs;
     private final Comparator<Itemset<?>> itemsetComparator;
     private final ItemsetMinerConfiguration<LabelType> itemsetMinerConfiguration;
+    private final SquaredDistanceCache squaredDistanceCache;
+    private MiningExecutor miningExecutor;
+    private final LabelDictionary<LabelType> labelDictionary;
     private Set<Itemset<LabelType>> candidates;
     private Set<Itemset<LabelType>> previousCandidates;
     private Set<Itemset<LabelType>> removedPreviousCandidates;
@@ -45,6 +52,37 @@ public class ItemsetMiner<LabelType extends Comparable<LabelType>> {
         maximalEpochs = itemsetMinerConfiguration.getMaximalEpochs();
         itemsetComparator = itemsetMinerConfiguration.getItemsetComparatorType().getComparator();
 
+        // share one cache of distances between all metrics
+        int distanceMatrixCacheSize = itemsetMinerConfiguration.getDistanceMatrixCacheSize();
+        squaredDistanceCache = new SquaredDistanceCache(distanceMatrixCacheSize == -1 ? SquaredDistanceCache.UNBOUNDED : distanceMatrixCacheSize * 1024L * 1024L,
+                                                        itemsetMinerConfiguration.getSpatialIndexThreshold());
+        evaluationMetrics.stream()
+                         .filter(DataPointCache.class::isInstance)
+                         .map(DataPointCache.class::cast)
+                         .forEach(dataPointCache -> dataPointCache.setSquaredDistanceCache(squaredDistanceCache));
+
+        // bound the memory of the observed distributions if desired
+        int distributionCapacity = itemsetMinerConfiguration.getDistributionCapacity();
+        evaluationMetrics.stream()
+                         .filter(DistributionMetric.class::isInstance)
+                         .map(DistributionMetric.class::cast)
+                         .forEach(distributionMetric -> distributionMetric.setDistributionCapacity(distributionCapacity == -1 ? Distribution.UNBOUNDED : distributionCapacity));
+
+        // intern all labels of the data points once and share the dictionary with all label indices
+        labelDictionary = LabelDictionary.of(dataPoints);
+        logger.info("interned {} distinct labels", labelDictionary.size());
+        evaluationMetrics.stream()
+                         .filter(SupportMetric.class::isInstance)
+                         .map(SupportMetric.class::cast)
+                         .forEach(supportMetric -> supportMetric.setLabelDictionary(labelDictionary));
+        evaluationMetrics.stream()
+                         .filter(AbstractExtractionMetric.class::isInstance)
+                         .map(AbstractExtractionMetric.class::cast)
+                         .forEach(extractionMetric -> extractionMetric.setLabelDictionary(labelDictionary));
+
+        // use the common executor unless the run provides its own
+        setMiningExecutor(MiningExecutor.common());
+
         logger.info("initialized with {} data points", dataPoints.size());
         initialize();
     }
@@ -53,6 +91,31 @@ public class ItemsetMiner<LabelType extends Comparable<LabelType>> {
         return totalAffinityItemsets;
     }
 
+    public SquaredDistanceCache getSquaredDistanceCache() {
+        return squaredDistanceCache;
+    }
+
+    public MiningExecutor getMiningExecutor() {
+        return miningExecutor;
+    }
+
+    /**
+     * Sets the {@link MiningExecutor} that carries out all parallel work of this run and injects it into all {@link ParallelizableMetric}s.
+     *
+     * @param miningExecutor The {@link MiningExecutor} to be used.
+     */
+    public void setMiningExecutor(MiningExecutor miningExecutor) {
+        this.miningExecutor = miningExecutor;
+        evaluationMetrics.stream()
+                         .filter(ParallelizableMetric.class::isInstance)
+                         .map(ParallelizableMetric.class::cast)
+                         .forEach(parallelizableMetric -> parallelizableMetric.setMiningExecutor(miningExecutor));
+    }
+
+    public LabelDictionary<LabelType> getLabelDictionary() {
+        return labelDictionary;
+    }
+
     public List<DataPoint<LabelType>> getDataPoints() {
         return dataPoints;
     }
@@ -145,8 +208,7 @@ public class ItemsetMiner<LabelType extends Comparable<LabelType>> {
         }
 
         // remove all itemsets of new candidates that are containing previously removed ones
-        candidates.removeIf(candidate -> removedPreviousCandidates.stream()
-                                                                  .anyMatch(removedPreviousCandidate -> candidate.getItems().containsAll(removedPreviousCandidate.getItems())));
+        removeCandidatesContaining(candidates, removedPreviousCandidates, labelDictionary);
 
         // also terminate if previous candidates are empty (evaluation metrics filtered all potential new candidates)
         if (previousCandidates.isEmpty()) {
@@ -159,6 +221,34 @@ public class ItemsetMiner<LabelType extends Comparable<LabelType>> {
         logger.info("pruned new candidates are (size: {})\n\t{}", candidates.size(), candidates);
     }
 
+    /**
+     * Removes all (k+1)-{@link Itemset} candidates that contain at least one of the given removed k-{@link Itemset}s. The removed {@link Itemset}s are
+     * indexed by their {@link ItemsetKey}s, such that each candidate only has to be probed with its k-subsets.
+     *
+     * @param candidates        The (k+1)-{@link Itemset} candidates to be pruned.
+     * @param removedCandidates The removed k-{@link Itemset}s.
+     * @param labelDictionary   The {@link LabelDictionary} containing all labels of the given {@link Itemset}s.
+     * @param <LabelType>       The type of label.
+     */
+    static <LabelType extends Comparable<LabelType>> void removeCandidatesContaining(Set<Itemset<LabelType>> candidates, Set<Itemset<LabelType>> removedCandidates,
+                                                                                     LabelDictionary<LabelType> labelDictionary) {
+        if (removedCandidates.isEmpty()) {
+            return;
+        }
+        Set<ItemsetKey> removedCandidateKeys = removedCandidates.stream()
+                                                                .map(removedCandidate -> ItemsetKey.of(removedCandidate, labelDictionary))
+                                                                .collect(Collectors.toSet());
+        candidates.removeIf(candidate -> {
+            ItemsetKey candidateKey = ItemsetKey.of(candidate, labelDictionary);
+            for (int i = 0; i < candidateKey.size(); i++) {
+                if (removedCandidateKeys.contains(candidateKey.without(i))) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
     private void evaluateMetrics() {
 
         Predicate<EvaluationMetric<LabelType>> minimalItemsetSizeFilter = evaluationMetric -> evaluationMetric.getMinimalItemsetSize() <= previousItemsetSize;
@@ -251,29 +341,60 @@ public class ItemsetMiner<LabelType extends Comparable<LabelType>> {
                                                 .orElseThrow(() -> new ItemsetMinerException("failed during candidate generation"));
 
         // create new candidates
-        candidates = new HashSet<>();
-        for (Itemset<LabelType> itemsetOne : previousCandidates) {
-            boolean passedItemsetTwo = false;
-            for (Itemset<LabelType> itemsetTwo : previousCandidates) {
-                if (passedItemsetTwo) {
-                    // concatenate previous items
-                    Set<Item<LabelType>> items = Stream.concat(itemsetOne.getItems().stream(), itemsetTwo.getItems().stream())
-                                                       .collect(Collectors.toSet());
-                    // ignore combinations of repetitive sets
-                    if (items.size() != previousItemsetSize + 1) {
-                        continue;
-                    }
-                    // create and store new itemset
-                    Itemset<LabelType> newItemset = Itemset.of(items);
-                    candidates.add(newItemset);
-                } else {
-                    if (itemsetOne.equals(itemsetTwo)) {
-                        passedItemsetTwo = true;
-                    }
+        candidates = joinCandidates(previousCandidates, labelDictionary);
+        logger.info("new candidates are (size: {})\n\t{}", candidates.size(), candidates);
+    }
+
+    /**
+     * Joins the given k-{@link Itemset}s to (k+1)-{@link Itemset} candidates according to the Apriori-gen procedure. The k-{@link Itemset}s are
+     * encoded as {@link ItemsetKey}s and sorted lexicographically, such that only consecutive {@link Itemset}s sharing the same (k-1)-prefix have
+     * to be joined. Candidates with at least one k-subset that is not contained in the given {@link Itemset}s are discarded immediately.
+     *
+     * @param previousCandidates The k-{@link Itemset}s to be joined.
+     * @param labelDictionary    The {@link LabelDictionary} containing all labels of the given {@link Itemset}s.
+     * @param <LabelType>        The type of label.
+     * @return The (k+1)-{@link Itemset} candidates.
+     */
+    static <LabelType extends Comparable<LabelType>> Set<Itemset<LabelType>> joinCandidates(Set<Itemset<LabelType>> previousCandidates,
+                                                                                           LabelDictionary<LabelType> labelDictionary) {
+
+        // encode and sort previous candidates lexicographically
+        Map<ItemsetKey, Itemset<LabelType>> previousItemsets = new HashMap<>();
+        for (Itemset<LabelType> previousCandidate : previousCandidates) {
+            previousItemsets.put(ItemsetKey.of(previousCandidate, labelDictionary), previousCandidate);
+        }
+        List<ItemsetKey> sortedPreviousKeys = new ArrayList<>(previousItemsets.keySet());
+        Collections.sort(sortedPreviousKeys);
+
+        Set<Itemset<LabelType>> candidates = new HashSet<>();
+        for (int i = 0; i < sortedPreviousKeys.size(); i++) {
+            ItemsetKey keyOne = sortedPreviousKeys.get(i);
+            for (int j = i + 1; j < sortedPreviousKeys.size(); j++) {
+                ItemsetKey keyTwo = sortedPreviousKeys.get(j);
+                // itemsets sharing the same prefix are consecutive, no further join partners can follow
+                if (!keyOne.isSharingPrefix(keyTwo)) {
+                    break;
                 }
+                // ignore candidates with infrequent subsets
+                if (hasInfrequentSubset(keyOne.append(keyTwo.getLastLabelIdentifier()), previousItemsets.keySet())) {
+                    continue;
+                }
+                Set<Item<LabelType>> candidateItems = new TreeSet<>(previousItemsets.get(keyOne).getItems());
+                candidateItems.addAll(previousItemsets.get(keyTwo).getItems());
+                candidates.add(new Itemset<>(candidateItems));
             }
         }
-        logger.info("new candidates are (size: {})\n\t{}", candidates.size(), candidates);
+        return candidates;
+    }
+
+    private static boolean hasInfrequentSubset(ItemsetKey candidateKey, Set<ItemsetKey> previousKeys) {
+        // the subsets omitting one of the last two labels are the joined itemsets themselves
+        for (int i = 0; i < candidateKey.size() - 2; i++) {
+            if (!previousKeys.contains(candidateKey.without(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public ItemsetMinerConfiguration<LabelType> getItemsetMinerConfiguration() {
@@ -7,6 +7,10 @@ import bio.fkaiser.mmm.model.Itemset;
 import bio.fkaiser.mmm.model.analysis.statistics.SignificanceEstimator;
 import bio.fkaiser.mmm.model.configurations.ItemsetMinerConfiguration;
 import bio.fkaiser.mmm.model.configurations.analysis.statistics.SignificanceEstimatorConfiguration;
+import bio.fkaiser.mmm.model.configurations.metrics.AdherenceMetricConfiguration;
+import bio.fkaiser.mmm.model.configurations.metrics.AffinityMetricConfiguration;
+import bio.fkaiser.mmm.model.configurations.metrics.CohesionMetricConfiguration;
+import bio.fkaiser.mmm.model.configurations.metrics.ConsensusMetricConfiguration;
 import bio.fkaiser.mmm.model.configurations.metrics.ExtractionDependentMetricConfiguration;
 import bio.fkaiser.mmm.model.configurations.metrics.ExtractionMetricConfiguration;
 import bio.fkaiser.mmm.model.configurations.metrics.SimpleMetricConfiguration;
@@ -40,6 +44,7 @@ public class ItemsetMinerRunner {
     private static final Logger logger = LoggerFactory.getLogger(ItemsetMinerRunner.class);
 
     private final ItemsetMinerConfiguration<String> itemsetMinerConfiguration;
+    private final MiningExecutor miningExecutor;
     private List<DataPoint<String>> dataPoints;
     private List<EvaluationMetric<String>> evaluationMetrics;
     private ItemsetMiner<String> itemsetMiner;
@@ -48,12 +53,19 @@ public class ItemsetMinerRunner {
     public ItemsetMinerRunner(ItemsetMinerConfiguration<String> itemsetMinerConfiguration) throws IOException, URISyntaxException {
         this.itemsetMinerConfiguration = itemsetMinerConfiguration;
         logger.info("configuration created on {} by {}", itemsetMinerConfiguration.getCreationDate(), itemsetMinerConfiguration.getCreationUser());
-        readDataPoints();
-        enrichDataPoints();
-        mapDataPoints();
-        createMetrics();
-        mineDataPoints();
-        calculateSignificance();
+        miningExecutor = new MiningExecutor(itemsetMinerConfiguration.getLevelOfParallelism());
+        warnAboutIgnoredLevelsOfParallelism();
+        try {
+            readDataPoints();
+            enrichDataPoints();
+            mapDataPoints();
+            createMetrics();
+            mineDataPoints();
+            calculateSignificance();
+        } finally {
+            // all parallel work is done, release worker threads
+            miningExecutor.shutdown();
+        }
         if (itemsetMinerConfiguration.getOutputLocation() == null) {
             logger.info("no output location specified, no results will be written");
         } else {
@@ -67,9 +79,16 @@ public class ItemsetMinerRunner {
         logger.info("configuration created on {} by {}", itemsetMinerConfiguration.getCreationDate(), itemsetMinerConfiguration.getCreationUser());
         logger.info("data points of size {} already provided", dataPoints.size());
         this.dataPoints = dataPoints;
-        createMetrics();
-        mineDataPoints();
-        calculateSignificance();
+        miningExecutor = new MiningExecutor(itemsetMinerConfiguration.getLevelOfParallelism());
+        warnAboutIgnoredLevelsOfParallelism();
+        try {
+            createMetrics();
+            mineDataPoints();
+            calculateSignificance();
+        } finally {
+            // all parallel work is done, release worker threads
+            miningExecutor.shutdown();
+        }
         if (itemsetMinerConfiguration.getOutputLocation() == null) {
             logger.info("no output location specified, no results will be written");
         } else {
@@ -88,6 +107,39 @@ public class ItemsetMinerRunner {
         new ItemsetMinerRunner(itemsetMinerConfiguration);
     }
 
+    /**
+     * Warns once about all metric and significance estimator configurations that specify a level of parallelism of their own, which is ignored in
+     * favor of the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @SuppressWarnings("deprecation")
+    private void warnAboutIgnoredLevelsOfParallelism() {
+        List<Object> configurations = new ArrayList<>(itemsetMinerConfiguration.getExtractionDependentMetricConfigurations());
+        configurations.add(itemsetMinerConfiguration.getExtractionMetricConfiguration());
+        configurations.add(itemsetMinerConfiguration.getSignificanceEstimatorConfiguration());
+        List<String> ignoredConfigurations = new ArrayList<>();
+        for (Object configuration : configurations) {
+            int levelOfParallelism = MiningExecutor.ALL_PROCESSORS;
+            if (configuration instanceof CohesionMetricConfiguration) {
+                levelOfParallelism = ((CohesionMetricConfiguration<?>) configuration).getLevelOfParallelism();
+            } else if (configuration instanceof AdherenceMetricConfiguration) {
+                levelOfParallelism = ((AdherenceMetricConfiguration<?>) configuration).getLevelOfParallelism();
+            } else if (configuration instanceof ConsensusMetricConfiguration) {
+                levelOfParallelism = ((ConsensusMetricConfiguration<?>) configuration).getLevelOfParallelism();
+            } else if (configuration instanceof AffinityMetricConfiguration) {
+                levelOfParallelism = ((AffinityMetricConfiguration<?>) configuration).getLevelOfParallelism();
+            } else if (configuration instanceof SignificanceEstimatorConfiguration) {
+                levelOfParallelism = ((SignificanceEstimatorConfiguration) configuration).getLevelOfParallelism();
+            }
+            if (levelOfParallelism != MiningExecutor.ALL_PROCESSORS) {
+                ignoredConfigurations.add(configuration.getClass().getSimpleName());
+            }
+        }
+        if (!ignoredConfigurations.isEmpty()) {
+            logger.warn("ignoring level of parallelism of {}, all metrics share the level of parallelism {} of the itemset miner configuration",
+                        ignoredConfigurations, miningExecutor.getParallelism());
+        }
+    }
+
     private void readDataPoints() throws URISyntaxException, IOException {
 
         // create structure parser options
@@ -199,6 +251,8 @@ public class ItemsetMinerRunner {
         logger.info(">>>STEP 5<<< mining data points");
 
         itemsetMiner = new ItemsetMiner<>(dataPoints, evaluationMetrics, itemsetMinerConfiguration);
+        // all metrics share the executor of this run
+        itemsetMiner.setMiningExecutor(miningExecutor);
         itemsetMiner.start();
     }
 
@@ -0,0 +1,175 @@
+package bio.fkaiser.mmm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The executor for all parallel stages of a mining run. It is owned by the {@link ItemsetMinerRunner} and shared by all metrics, such that a
+ * single level of parallelism applies to the whole run and no threads are left behind once it is shut down. For each stage the number of
+ * processed tasks as well as the wall and busy time of the worker threads are recorded. The common {@link MiningExecutor} is never shut down
+ * and lives as long as the JVM, hence it records no statistics.
+ *
+ * @author fk
+ */
+public class MiningExecutor implements AutoCloseable {
+
+    /**
+     * the level of parallelism that uses all available processors
+     */
+    public static final int ALL_PROCESSORS = -1;
+
+    private static final Logger logger = LoggerFactory.getLogger(MiningExecutor.class);
+    private static final MiningExecutor COMMON = new MiningExecutor(ForkJoinPool.commonPool(), false);
+
+    private final ForkJoinPool forkJoinPool;
+    private final boolean owned;
+    private final Map<String, StageStatistics> stageStatistics;
+
+    /**
+     * Creates a new {@link MiningExecutor} with its own worker threads.
+     *
+     * @param levelOfParallelism The number of worker threads or {@link #ALL_PROCESSORS}.
+     */
+    public MiningExecutor(int levelOfParallelism) {
+        this(new ForkJoinPool(levelOfParallelism == ALL_PROCESSORS ? Runtime.getRuntime().availableProcessors() : levelOfParallelism), true);
+    }
+
+    private MiningExecutor(ForkJoinPool forkJoinPool, boolean owned) {
+        this.forkJoinPool = forkJoinPool;
+        this.owned = owned;
+        stageStatistics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the {@link MiningExecutor} that is backed by the common {@link ForkJoinPool}. This is used by metrics that are not part of a run
+     * managed by an {@link ItemsetMinerRunner}. It cannot be shut down and records no stage statistics.
+     *
+     * @return The common {@link MiningExecutor}.
+     */
+    public static MiningExecutor common() {
+        return COMMON;
+    }
+
+    public int getParallelism() {
+        return forkJoinPool.getParallelism();
+    }
+
+    public Map<String, StageStatistics> getStageStatistics() {
+        return stageStatistics;
+    }
+
+    /**
+     * Applies the given function to all elements in parallel. The elements are split recursively into fine-grained tasks as long as idle workers
+     * can steal them, such that a single expensive element does not stall the others. Each result is written to its own slot, hence no
+     * synchronization is required to merge them.
+     *
+     * @param stage         The name of the stage for accounting.
+     * @param elements      The elements to be processed.
+     * @param function      The function to be applied to each element, which must not modify shared state.
+     * @param <ElementType> The type of the elements.
+     * @param <ResultType>  The type of the results.
+     * @return The results in the order of the given elements.
+     */
+    @SuppressWarnings("unchecked")
+    public <ElementType, ResultType> List<ResultType> computeInParallel(String stage, List<ElementType> elements, Function<ElementType, ResultType> function) {
+        Object[] results = new Object[elements.size()];
+        if (!owned) {
+            // the common executor is shared by all runs, hence statistics would accumulate forever
+            forkJoinPool.invoke(new ParallelMappingTask<>(elements, function, results, 0, elements.size()));
+            return (List<ResultType>) Arrays.asList(results);
+        }
+        StageStatistics statistics = stageStatistics.computeIfAbsent(stage, key -> new StageStatistics());
+        Function<ElementType, ResultType> timedFunction = element -> {
+            long start = System.nanoTime();
+            try {
+                return function.apply(element);
+            } finally {
+                statistics.busyTime.add(System.nanoTime() - start);
+            }
+        };
+        long start = System.nanoTime();
+        forkJoinPool.invoke(new ParallelMappingTask<>(elements, timedFunction, results, 0, elements.size()));
+        statistics.wallTime.addAndGet(System.nanoTime() - start);
+        statistics.invocationCount.incrementAndGet();
+        statistics.taskCount.addAndGet(elements.size());
+        return (List<ResultType>) Arrays.asList(results);
+    }
+
+    /**
+     * Shuts down the worker threads after all submitted stages are completed and reports the statistics of all stages. This has no effect on
+     * the common {@link MiningExecutor}.
+     */
+    public void shutdown() {
+        stageStatistics.forEach((stage, statistics) -> logger.info("stage '{}': {}", stage, statistics.toString(getParallelism())));
+        if (!owned) {
+            return;
+        }
+        forkJoinPool.shutdown();
+        try {
+            if (!forkJoinPool.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("worker threads did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * The accounting of a single stage, accumulated over all its invocations.
+     */
+    public static class StageStatistics {
+
+        private final AtomicLong invocationCount = new AtomicLong();
+        private final AtomicLong taskCount = new AtomicLong();
+        private final AtomicLong wallTime = new AtomicLong();
+        private final LongAdder busyTime = new LongAdder();
+
+        public long getInvocationCount() {
+            return invocationCount.get();
+        }
+
+        public long getTaskCount() {
+            return taskCount.get();
+        }
+
+        /**
+         * Returns the elapsed time of all invocations in nanoseconds.
+         *
+         * @return The wall time.
+         */
+        public long getWallTime() {
+            return wallTime.get();
+        }
+
+        /**
+         * Returns the time in nanoseconds that worker threads spent processing tasks, summed over all threads.
+         *
+         * @return The busy time.
+         */
+        public long getBusyTime() {
+            return busyTime.sum();
+        }
+
+        private String toString(int parallelism) {
+            double utilization = getWallTime() == 0 ? 0.0 : 100.0 * getBusyTime() / ((double) getWallTime() * parallelism);
+            return String.format("%d tasks in %d invocations, wall time %d ms, busy time %d ms, utilization of %d threads %.1f%%",
+                                 getTaskCount(), getInvocationCount(), TimeUnit.NANOSECONDS.toMillis(getWallTime()),
+                                 TimeUnit.NANOSECONDS.toMillis(getBusyTime()), parallelism, utilization);
+        }
+    }
+}
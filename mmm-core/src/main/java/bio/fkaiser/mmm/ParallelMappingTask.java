@@ -0,0 +1,60 @@
+package bio.fkaiser.mmm;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * A {@link RecursiveAction} that applies a function to a range of elements and stores the results at the positions of the elements. Ranges
+ * are split adaptively, i.e. only while few forked tasks are queued for other workers to steal.
+ *
+ * @author fk
+ */
+class ParallelMappingTask<ElementType, ResultType> extends RecursiveAction {
+
+    /**
+     * ranges are processed sequentially if more than this number of forked tasks are waiting to be stolen
+     */
+    private static final int SURPLUS_QUEUED_TASK_LIMIT = 3;
+
+    private final List<ElementType> elements;
+    private final Function<ElementType, ResultType> function;
+    private final Object[] results;
+    private final int from;
+    private final int to;
+    private final ParallelMappingTask<ElementType, ResultType> next;
+
+    ParallelMappingTask(List<ElementType> elements, Function<ElementType, ResultType> function, Object[] results, int from, int to) {
+        this(elements, function, results, from, to, null);
+    }
+
+    private ParallelMappingTask(List<ElementType> elements, Function<ElementType, ResultType> function, Object[] results, int from, int to,
+                                ParallelMappingTask<ElementType, ResultType> next) {
+        this.elements = elements;
+        this.function = function;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+        this.next = next;
+    }
+
+    @Override
+    protected void compute() {
+        int upper = to;
+        ParallelMappingTask<ElementType, ResultType> forkedTasks = null;
+        // fork the upper half as long as other workers may steal it
+        while (upper - from > 1 && getSurplusQueuedTaskCount() <= SURPLUS_QUEUED_TASK_LIMIT) {
+            int middle = (from + upper) >>> 1;
+            forkedTasks = new ParallelMappingTask<>(elements, function, results, middle, upper, forkedTasks);
+            forkedTasks.fork();
+            upper = middle;
+        }
+        for (int i = from; i < upper; i++) {
+            results[i] = function.apply(elements.get(i));
+        }
+        // join forked tasks in reverse order, which are either processed by this worker or by thieves
+        for (ParallelMappingTask<ElementType, ResultType> forkedTask = forkedTasks; forkedTask != null; forkedTask = forkedTask.next) {
+            forkedTask.join();
+        }
+    }
+}
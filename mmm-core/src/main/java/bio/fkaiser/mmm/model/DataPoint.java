@@ -1,14 +1,14 @@
 package bio.fkaiser.mmm.model;
 
+import de.bioforscher.singa.structure.algorithms.superimposition.fit3d.representations.RepresentationSchemeType;
 import de.bioforscher.singa.structure.model.interfaces.LeafSubstructure;
 import de.bioforscher.singa.structure.parser.pdb.structures.StructureWriter;
 import de.bioforscher.singa.structure.parser.plip.InteractionType;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -20,6 +20,18 @@ public class DataPoint<LabelType extends Comparable<LabelType>> {
 
     private final DataPointIdentifier dataPointIdentifier;
     private List<Item<LabelType>> items;
+    /**
+     * lazily built index of the positions of all {@link Item}s per label
+     */
+    private volatile Map<LabelType, int[]> labelIndex;
+    /**
+     * lazily computed tables of closest {@link Item}s per pair of labels, which are shared across {@link Itemset}s and epochs
+     */
+    private volatile Map<NearestItemTableKey, NearestItemTable> nearestItemTables = new ConcurrentHashMap<>();
+    /**
+     * lazily computed fingerprint of the {@link Item}s together with the number of {@link Item}s it was computed for
+     */
+    private volatile long[] itemFingerprint;
 
     public DataPoint(List<Item<LabelType>> items, DataPointIdentifier dataPointIdentifier) {
         this.items = items;
@@ -34,6 +46,112 @@ public class DataPoint<LabelType extends Comparable<LabelType>> {
         return items;
     }
 
+    /**
+     * Returns all {@link Item}s of this {@link DataPoint} with the given label. The lookup uses an index of the {@link Item} positions per label,
+     * which is built on first access.
+     *
+     * @param label The label of the {@link Item}s.
+     * @return The {@link Item}s with the given label, in the order of their occurrence.
+     */
+    public List<Item<LabelType>> getItems(LabelType label) {
+        int[] itemIndices = getItemIndices(label);
+        List<Item<LabelType>> labelItems = new ArrayList<>(itemIndices.length);
+        for (int itemIndex : itemIndices) {
+            labelItems.add(items.get(itemIndex));
+        }
+        return labelItems;
+    }
+
+    /**
+     * Returns the positions of all {@link Item}s of this {@link DataPoint} with the given label.
+     *
+     * @param label The label of the {@link Item}s.
+     * @return The positions of the {@link Item}s with the given label or an empty array if there are none.
+     */
+    public int[] getItemIndices(LabelType label) {
+        int[] itemIndices = getLabelIndex().get(label);
+        return itemIndices == null ? new int[0] : itemIndices;
+    }
+
+    /**
+     * Returns the number of {@link Item}s of this {@link DataPoint} with the given label. The count is served from the index of {@link Item}
+     * positions per label.
+     *
+     * @param label The label of the {@link Item}s.
+     * @return The number of {@link Item}s with the given label.
+     */
+    public int getItemCount(LabelType label) {
+        int[] itemIndices = getLabelIndex().get(label);
+        return itemIndices == null ? 0 : itemIndices.length;
+    }
+
+    /**
+     * Returns the {@link NearestItemTable} that stores for each occurrence of the reference label the closest {@link Item} with the given label.
+     * The table is computed on first access and cached until the labels are changed.
+     *
+     * @param referenceLabel   The reference label.
+     * @param label            The label of the candidate {@link Item}s.
+     * @param squaredDistances The {@link SquaredDistances} of this {@link DataPoint}.
+     * @return The {@link NearestItemTable} for the pair of labels.
+     */
+    public NearestItemTable getNearestItemTable(LabelType referenceLabel, LabelType label, SquaredDistances squaredDistances) {
+        NearestItemTableKey nearestItemTableKey = new NearestItemTableKey(referenceLabel, label, squaredDistances.getRepresentationSchemeType());
+        return nearestItemTables.computeIfAbsent(nearestItemTableKey,
+                                                 key -> NearestItemTable.of(squaredDistances, getItemIndices(referenceLabel), getItemIndices(label)));
+    }
+
+    /**
+     * Returns a fingerprint of the {@link Item}s of this {@link DataPoint} that depends on their {@link LeafSubstructure}s and sequence positions
+     * but not on their labels. {@link DataPoint}s with equal fingerprints share the positions of their {@link Item}s, e.g. permuted views, while
+     * {@link DataPoint}s that share the identifier but differ in their {@link Item}s (e.g. before and after mapping) do not.
+     *
+     * @return The fingerprint of the {@link Item}s.
+     */
+    public long getItemFingerprint() {
+        long[] currentItemFingerprint = itemFingerprint;
+        // recompute if items were added after the fingerprint was computed
+        if (currentItemFingerprint == null || currentItemFingerprint[0] != items.size()) {
+            long fingerprint = items.size();
+            for (Item<LabelType> item : items) {
+                fingerprint = 31 * fingerprint + item.getSequencePosition();
+                fingerprint = 31 * fingerprint + item.getLeafSubstructure()
+                                                     .map(leafSubstructure -> Objects.hashCode(leafSubstructure.getIdentifier()))
+                                                     .orElse(0);
+            }
+            currentItemFingerprint = new long[]{items.size(), fingerprint};
+            itemFingerprint = currentItemFingerprint;
+        }
+        return currentItemFingerprint[1];
+    }
+
+    /**
+     * Invalidates the index of {@link Item} positions per label and all derived {@link NearestItemTable}s. This has to be called whenever
+     * labels of {@link Item}s are changed in place.
+     */
+    public void invalidateLabelIndex() {
+        labelIndex = null;
+        nearestItemTables = new ConcurrentHashMap<>();
+    }
+
+    private Map<LabelType, int[]> getLabelIndex() {
+        Map<LabelType, int[]> currentLabelIndex = labelIndex;
+        if (currentLabelIndex == null) {
+            // concurrent initialization creates equal indices, hence no locking is required
+            Map<LabelType, List<Integer>> itemIndicesPerLabel = new HashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                itemIndicesPerLabel.computeIfAbsent(items.get(i).getLabel(), label -> new ArrayList<>()).add(i);
+            }
+            currentLabelIndex = new HashMap<>();
+            for (Map.Entry<LabelType, List<Integer>> entry : itemIndicesPerLabel.entrySet()) {
+                currentLabelIndex.put(entry.getKey(), entry.getValue().stream()
+                                                              .mapToInt(Integer::intValue)
+                                                              .toArray());
+            }
+            labelIndex = currentLabelIndex;
+        }
+        return currentLabelIndex;
+    }
+
     @Override
     public String toString() {
         return items.stream()
@@ -69,4 +187,47 @@ public class DataPoint<LabelType extends Comparable<LabelType>> {
                                                  .collect(Collectors.toList());
         return new DataPoint<>(copiedItems, new DataPointIdentifier(dataPointIdentifier.getPdbIdentifier(), dataPointIdentifier.getChainIdentifier()));
     }
+
+    /**
+     * Creates a view of this {@link DataPoint} in which the labels of the {@link Item}s are permuted, i.e. the {@link Item} at position i
+     * receives the label of the {@link Item} at position permutation[i]. The view shares the {@link LeafSubstructure}s and the identifier with
+     * this {@link DataPoint}, such that no structure is copied and this {@link DataPoint} stays unchanged.
+     *
+     * @param permutation The permutation of {@link Item} positions.
+     * @return The {@link DataPoint} with permuted labels.
+     */
+    public DataPoint<LabelType> getPermutedView(int[] permutation) {
+        List<Item<LabelType>> permutedItems = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Item<LabelType> item = items.get(i);
+            permutedItems.add(new Item<>(items.get(permutation[i]).getLabel(), item.getLeafSubstructure().orElse(null), item.getSequencePosition()));
+        }
+        return new DataPoint<>(permutedItems, dataPointIdentifier);
+    }
+
+    private static class NearestItemTableKey {
+
+        private final Object referenceLabel;
+        private final Object label;
+        private final RepresentationSchemeType representationSchemeType;
+
+        private NearestItemTableKey(Object referenceLabel, Object label, RepresentationSchemeType representationSchemeType) {
+            this.referenceLabel = referenceLabel;
+            this.label = label;
+            this.representationSchemeType = representationSchemeType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            NearestItemTableKey that = (NearestItemTableKey) o;
+            return referenceLabel.equals(that.referenceLabel) && label.equals(that.label) && representationSchemeType == that.representationSchemeType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(referenceLabel, label, representationSchemeType);
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package bio.fkaiser.mmm.model;
+
+/**
+ * An exception if something goes wrong during the calculation or caching of {@link SquaredDistanceMatrix}es.
+ *
+ * @author fk
+ */
+public class DataPointCacheException extends RuntimeException {
+
+    public DataPointCacheException() {
+    }
+
+    public DataPointCacheException(String message) {
+        super(message);
+    }
+
+    public DataPointCacheException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
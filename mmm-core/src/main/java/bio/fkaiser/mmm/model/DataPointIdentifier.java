@@ -1,6 +1,7 @@
 package bio.fkaiser.mmm.model;
 
 import java.util.Comparator;
+import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
@@ -32,6 +33,19 @@ public class DataPointIdentifier {
         this.chainIdentifier = chainIdentifier;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DataPointIdentifier that = (DataPointIdentifier) o;
+        return pdbIdentifier.equals(that.pdbIdentifier) && Objects.equals(chainIdentifier, that.chainIdentifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pdbIdentifier, chainIdentifier);
+    }
+
     @Override
     public String toString() {
         return pdbIdentifier + "_" + chainIdentifier;
@@ -0,0 +1,110 @@
+package bio.fkaiser.mmm.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A vertical index of {@link DataPoint}s that stores for each label the {@link BitSet} of {@link DataPoint}s (by their position in the indexed
+ * list) containing an {@link Item} with this label. The {@link DataPoint}s containing all {@link Item}s of an {@link Itemset} are given by the
+ * intersection of the {@link BitSet}s of its labels. Labels are addressed by their identifier in the associated {@link LabelDictionary}.
+ * <p>
+ * The index reflects the labels at the time of its creation and has to be rebuilt if the labels of the {@link DataPoint}s are changed.
+ *
+ * @author fk
+ */
+public class DataPointLabelIndex<LabelType extends Comparable<LabelType>> {
+
+    private final List<DataPoint<LabelType>> dataPoints;
+    private final LabelDictionary<LabelType> labelDictionary;
+    private final int dataPointCount;
+    private final BitSet[] dataPointsByLabel;
+
+    public DataPointLabelIndex(List<DataPoint<LabelType>> dataPoints) {
+        this(dataPoints, LabelDictionary.of(dataPoints));
+    }
+
+    public DataPointLabelIndex(List<DataPoint<LabelType>> dataPoints, LabelDictionary<LabelType> labelDictionary) {
+        this.dataPoints = dataPoints;
+        this.labelDictionary = labelDictionary;
+        dataPointCount = dataPoints.size();
+        dataPointsByLabel = new BitSet[labelDictionary.size()];
+        for (int i = 0; i < dataPointsByLabel.length; i++) {
+            dataPointsByLabel[i] = new BitSet(dataPointCount);
+        }
+        for (int i = 0; i < dataPoints.size(); i++) {
+            for (Item<LabelType> item : dataPoints.get(i).getItems()) {
+                int labelIdentifier = labelDictionary.getIdentifier(item.getLabel());
+                if (labelIdentifier != -1) {
+                    dataPointsByLabel[labelIdentifier].set(i);
+                }
+            }
+        }
+    }
+
+    public LabelDictionary<LabelType> getLabelDictionary() {
+        return labelDictionary;
+    }
+
+    public int getDataPointCount() {
+        return dataPointCount;
+    }
+
+    /**
+     * Returns the {@link BitSet} of all {@link DataPoint}s that contain every given {@link Item}.
+     *
+     * @param items The {@link Item}s that have to be contained.
+     * @return The positions of all {@link DataPoint}s containing the {@link Item}s.
+     */
+    public BitSet getDataPoints(Set<Item<LabelType>> items) {
+        return getDataPoints(labelDictionary.encode(items));
+    }
+
+    /**
+     * Returns the {@link BitSet} of all {@link DataPoint}s that contain every given label.
+     *
+     * @param labelIdentifiers The identifiers of the labels that have to be contained.
+     * @return The positions of all {@link DataPoint}s containing the labels.
+     */
+    public BitSet getDataPoints(int[] labelIdentifiers) {
+        BitSet dataPoints = new BitSet(dataPointCount);
+        // the empty itemset is contained in every data point
+        dataPoints.set(0, dataPointCount);
+        for (int labelIdentifier : labelIdentifiers) {
+            if (labelIdentifier == -1) {
+                return new BitSet();
+            }
+            dataPoints.and(dataPointsByLabel[labelIdentifier]);
+            if (dataPoints.isEmpty()) {
+                break;
+            }
+        }
+        return dataPoints;
+    }
+
+    /**
+     * Returns all indexed {@link DataPoint}s that contain every given {@link Item}.
+     *
+     * @param items The {@link Item}s that have to be contained.
+     * @return The {@link DataPoint}s containing the {@link Item}s, in the order of the indexed list.
+     */
+    public List<DataPoint<LabelType>> selectDataPoints(Set<Item<LabelType>> items) {
+        BitSet dataPointPositions = getDataPoints(items);
+        List<DataPoint<LabelType>> selectedDataPoints = new ArrayList<>(dataPointPositions.cardinality());
+        for (int i = dataPointPositions.nextSetBit(0); i >= 0; i = dataPointPositions.nextSetBit(i + 1)) {
+            selectedDataPoints.add(dataPoints.get(i));
+        }
+        return selectedDataPoints;
+    }
+
+    /**
+     * Returns the number of {@link DataPoint}s that contain every given {@link Item}.
+     *
+     * @param items The {@link Item}s that have to be contained.
+     * @return The number of {@link DataPoint}s containing the {@link Item}s.
+     */
+    public int countDataPoints(Set<Item<LabelType>> items) {
+        return getDataPoints(items).cardinality();
+    }
+}
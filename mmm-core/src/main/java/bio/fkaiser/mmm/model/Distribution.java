@@ -2,26 +2,133 @@ package bio.fkaiser.mmm.model;
 
 import bio.fkaiser.mmm.model.metrics.DistributionMetric;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
- * An object that stores values observed by {@link DistributionMetric}s during mining.
+ * An object that stores values observed by {@link DistributionMetric}s during mining. Observations are kept in a growable primitive buffer
+ * and mean and variance are updated with each observation (Welford's algorithm), such that moments never require a scan of the observations.
+ * <p>
+ * Optionally the number of stored observations can be bounded by a capacity. If more observations are added, a uniform random sample of all
+ * observations is retained (reservoir sampling), while the moments still cover all observations.
  *
  * @author fk
  */
 public class Distribution {
 
-    private Class<? extends DistributionMetric> distributionMetricType;
-    private List<Double> observations;
+    /**
+     * the capacity of a distribution that stores all observations
+     */
+    public static final int UNBOUNDED = -1;
+
+    private static final int INITIAL_BUFFER_SIZE = 16;
+    /**
+     * fixed seed of the reservoir sampling, such that retained observations are reproducible
+     */
+    private static final long RESERVOIR_SEED = 42L;
+
+    private final Class<? extends DistributionMetric> distributionMetricType;
+    private final int capacity;
+    private double[] observations;
+    private int storedObservationCount;
+    private long observationCount;
+    private double mean;
+    private double squaredDeviationSum;
+    private SplittableRandom reservoirRandom;
 
     public Distribution(Class<? extends DistributionMetric> distributionMetricType) {
+        this(distributionMetricType, UNBOUNDED);
+    }
+
+    /**
+     * Creates a new {@link Distribution} that stores at most the given number of observations.
+     *
+     * @param distributionMetricType The type of {@link DistributionMetric} that observed the values.
+     * @param capacity               The maximal number of stored observations or {@link #UNBOUNDED}.
+     */
+    public Distribution(Class<? extends DistributionMetric> distributionMetricType, int capacity) {
+        if (capacity != UNBOUNDED && capacity < 1) {
+            throw new IllegalArgumentException("capacity of distribution must be positive or unbounded");
+        }
         this.distributionMetricType = distributionMetricType;
-        observations = new ArrayList<>();
+        this.capacity = capacity;
+        observations = new double[capacity == UNBOUNDED ? INITIAL_BUFFER_SIZE : Math.min(capacity, INITIAL_BUFFER_SIZE)];
+    }
+
+    /**
+     * Returns a copy of the stored observations. If the capacity was exceeded these are a uniform random sample of all observations.
+     *
+     * @return The stored observations.
+     */
+    public double[] getObservations() {
+        return Arrays.copyOf(observations, storedObservationCount);
+    }
+
+    /**
+     * Returns the number of stored observations, which is at most the capacity.
+     *
+     * @return The number of stored observations.
+     */
+    public int getStoredObservationCount() {
+        return storedObservationCount;
+    }
+
+    /**
+     * Returns the number of all observations that were added.
+     *
+     * @return The number of observations.
+     */
+    public long getObservationCount() {
+        return observationCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the mean of all observations.
+     *
+     * @return The mean or {@link Double#NaN} if there are no observations.
+     */
+    public double getMean() {
+        return observationCount == 0 ? Double.NaN : mean;
     }
 
-    public List<Double> getObservations() {
-        return observations;
+    /**
+     * Returns the unbiased sample variance of all observations.
+     *
+     * @return The variance or {@link Double#NaN} if there are less than two observations.
+     */
+    public double getVariance() {
+        return observationCount < 2 ? Double.NaN : squaredDeviationSum / (observationCount - 1);
+    }
+
+    /**
+     * Returns the sample standard deviation of all observations.
+     *
+     * @return The standard deviation or {@link Double#NaN} if there are less than two observations.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the population variance of all observations.
+     *
+     * @return The population variance or {@link Double#NaN} if there are no observations.
+     */
+    public double getPopulationVariance() {
+        return observationCount == 0 ? Double.NaN : squaredDeviationSum / observationCount;
+    }
+
+    /**
+     * Returns the population standard deviation of all observations.
+     *
+     * @return The population standard deviation or {@link Double#NaN} if there are no observations.
+     */
+    public double getPopulationStandardDeviation() {
+        return Math.sqrt(getPopulationVariance());
     }
 
     public Class<? extends DistributionMetric> getDistributionMetricType() {
@@ -32,11 +139,33 @@ public class Distribution {
     public String toString() {
         return "Distribution{" +
                "distributionMetricType=" + distributionMetricType.getSimpleName() +
-               ", observations=" + observations.size() +
+               ", observations=" + observationCount +
                '}';
     }
 
     public void addObservationValue(double observationValue) {
-        observations.add(observationValue);
+        observationCount++;
+
+        // update moments
+        double delta = observationValue - mean;
+        mean += delta / observationCount;
+        squaredDeviationSum += delta * (observationValue - mean);
+
+        if (capacity == UNBOUNDED || storedObservationCount < capacity) {
+            if (storedObservationCount == observations.length) {
+                int bufferSize = observations.length * 2;
+                observations = Arrays.copyOf(observations, capacity == UNBOUNDED ? bufferSize : Math.min(capacity, bufferSize));
+            }
+            observations[storedObservationCount++] = observationValue;
+        } else {
+            // replace a stored observation with probability capacity/observationCount
+            if (reservoirRandom == null) {
+                reservoirRandom = new SplittableRandom(RESERVOIR_SEED);
+            }
+            long replacementIndex = reservoirRandom.nextLong(observationCount);
+            if (replacementIndex < capacity) {
+                observations[(int) replacementIndex] = observationValue;
+            }
+        }
     }
 }
@@ -0,0 +1,131 @@
+package bio.fkaiser.mmm.model;
+
+import java.util.Arrays;
+
+/**
+ * A compact and immutable identity of an {@link Itemset}, given by the sorted identifiers of its labels in a {@link LabelDictionary}. The hash is
+ * computed once, such that {@link ItemsetKey}s are cheap to store in hash-based collections. {@link ItemsetKey}s are ordered lexicographically.
+ * <p>
+ * {@link ItemsetKey}s are only used as identity during candidate generation and pruning. {@link Itemset}s remain the stored type, which carries
+ * the metric scores and structural observations.
+ *
+ * @author fk
+ */
+public final class ItemsetKey implements Comparable<ItemsetKey> {
+
+    private final int[] labelIdentifiers;
+    private final int hashCode;
+
+    private ItemsetKey(int[] labelIdentifiers) {
+        this.labelIdentifiers = labelIdentifiers;
+        hashCode = Arrays.hashCode(labelIdentifiers);
+    }
+
+    /**
+     * Creates a new {@link ItemsetKey} for the given {@link Itemset}.
+     *
+     * @param itemset         The {@link Itemset} for which the key should be created.
+     * @param labelDictionary The {@link LabelDictionary} containing all labels of the {@link Itemset}.
+     * @param <LabelType>     The type of label.
+     * @return The new {@link ItemsetKey}.
+     */
+    public static <LabelType extends Comparable<LabelType>> ItemsetKey of(Itemset<LabelType> itemset, LabelDictionary<LabelType> labelDictionary) {
+        return new ItemsetKey(labelDictionary.encode(itemset.getItems()));
+    }
+
+    /**
+     * Creates a new {@link ItemsetKey} for the given label identifiers.
+     *
+     * @param labelIdentifiers The identifiers of the labels.
+     * @return The new {@link ItemsetKey}.
+     */
+    public static ItemsetKey of(int... labelIdentifiers) {
+        int[] sortedLabelIdentifiers = labelIdentifiers.clone();
+        Arrays.sort(sortedLabelIdentifiers);
+        return new ItemsetKey(sortedLabelIdentifiers);
+    }
+
+    public int size() {
+        return labelIdentifiers.length;
+    }
+
+    public int getLabelIdentifier(int index) {
+        return labelIdentifiers[index];
+    }
+
+    public int getLastLabelIdentifier() {
+        return labelIdentifiers[labelIdentifiers.length - 1];
+    }
+
+    /**
+     * Returns the {@link ItemsetKey} of the subset that omits the label at the given index.
+     *
+     * @param index The index of the label to be omitted.
+     * @return The {@link ItemsetKey} of the subset.
+     */
+    public ItemsetKey without(int index) {
+        int[] subsetLabelIdentifiers = new int[labelIdentifiers.length - 1];
+        System.arraycopy(labelIdentifiers, 0, subsetLabelIdentifiers, 0, index);
+        System.arraycopy(labelIdentifiers, index + 1, subsetLabelIdentifiers, index, labelIdentifiers.length - index - 1);
+        return new ItemsetKey(subsetLabelIdentifiers);
+    }
+
+    /**
+     * Returns the {@link ItemsetKey} of the superset that additionally contains the given label, which has to be greater than all contained labels.
+     *
+     * @param labelIdentifier The identifier of the label to be appended.
+     * @return The {@link ItemsetKey} of the superset.
+     */
+    public ItemsetKey append(int labelIdentifier) {
+        int[] supersetLabelIdentifiers = Arrays.copyOf(labelIdentifiers, labelIdentifiers.length + 1);
+        supersetLabelIdentifiers[labelIdentifiers.length] = labelIdentifier;
+        return new ItemsetKey(supersetLabelIdentifiers);
+    }
+
+    /**
+     * Determines whether this {@link ItemsetKey} shares all but the last label with the given one.
+     *
+     * @param itemsetKey The {@link ItemsetKey} to compare with.
+     * @return True if both {@link ItemsetKey}s have the same size and share the same prefix.
+     */
+    public boolean isSharingPrefix(ItemsetKey itemsetKey) {
+        if (labelIdentifiers.length != itemsetKey.labelIdentifiers.length) {
+            return false;
+        }
+        for (int i = 0; i < labelIdentifiers.length - 1; i++) {
+            if (labelIdentifiers[i] != itemsetKey.labelIdentifiers[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int compareTo(ItemsetKey itemsetKey) {
+        for (int i = 0; i < Math.min(labelIdentifiers.length, itemsetKey.labelIdentifiers.length); i++) {
+            int comparison = Integer.compare(labelIdentifiers[i], itemsetKey.labelIdentifiers[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(labelIdentifiers.length, itemsetKey.labelIdentifiers.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ItemsetKey that = (ItemsetKey) o;
+        return hashCode == that.hashCode && Arrays.equals(labelIdentifiers, that.labelIdentifiers);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(labelIdentifiers);
+    }
+}
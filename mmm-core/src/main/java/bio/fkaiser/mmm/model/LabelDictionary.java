@@ -0,0 +1,76 @@
+package bio.fkaiser.mmm.model;
+
+import java.util.*;
+
+/**
+ * A dictionary that interns the labels of {@link Item}s to dense integer identifiers. Identifiers are assigned in the natural order of the labels,
+ * such that sorted identifier arrays are ordered like the {@link Item}s of an {@link Itemset}. The string form of a label is only restored via
+ * {@link #getLabel(int)}, e.g. for the output of results.
+ *
+ * @author fk
+ */
+public class LabelDictionary<LabelType extends Comparable<LabelType>> {
+
+    private final List<LabelType> labels;
+    private final Map<LabelType, Integer> identifiers;
+
+    public LabelDictionary(Collection<LabelType> labels) {
+        this.labels = new ArrayList<>(new TreeSet<>(labels));
+        identifiers = new HashMap<>();
+        for (int i = 0; i < this.labels.size(); i++) {
+            identifiers.put(this.labels.get(i), i);
+        }
+    }
+
+    /**
+     * Creates a new {@link LabelDictionary} for all labels occurring in the given {@link DataPoint}s.
+     *
+     * @param dataPoints  The {@link DataPoint}s whose labels should be interned.
+     * @param <LabelType> The type of label.
+     * @return The new {@link LabelDictionary}.
+     */
+    public static <LabelType extends Comparable<LabelType>> LabelDictionary<LabelType> of(List<DataPoint<LabelType>> dataPoints) {
+        Set<LabelType> labels = new HashSet<>();
+        for (DataPoint<LabelType> dataPoint : dataPoints) {
+            for (Item<LabelType> item : dataPoint.getItems()) {
+                labels.add(item.getLabel());
+            }
+        }
+        return new LabelDictionary<>(labels);
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    /**
+     * Returns the identifier of the given label.
+     *
+     * @param label The label.
+     * @return The identifier of the label or -1 if the label is unknown.
+     */
+    public int getIdentifier(LabelType label) {
+        Integer identifier = identifiers.get(label);
+        return identifier == null ? -1 : identifier;
+    }
+
+    public LabelType getLabel(int identifier) {
+        return labels.get(identifier);
+    }
+
+    /**
+     * Encodes the labels of the given {@link Item}s as sorted array of identifiers.
+     *
+     * @param items The {@link Item}s to be encoded.
+     * @return The sorted identifiers of the labels, unknown labels are encoded as -1.
+     */
+    public int[] encode(Collection<Item<LabelType>> items) {
+        int[] encodedItems = new int[items.size()];
+        int i = 0;
+        for (Item<LabelType> item : items) {
+            encodedItems[i++] = getIdentifier(item.getLabel());
+        }
+        Arrays.sort(encodedItems);
+        return encodedItems;
+    }
+}
@@ -0,0 +1,58 @@
+package bio.fkaiser.mmm.model;
+
+/**
+ * For each occurrence of a reference label in a {@link DataPoint}, this table stores the position of the closest {@link Item} with another
+ * label and their squared distance. Occurrences are addressed by their rank in {@link DataPoint#getItemIndices(Comparable)} of the reference
+ * label. Tables are immutable and obtained from {@link DataPoint#getNearestItemTable(Comparable, Comparable, SquaredDistances)}.
+ *
+ * @author fk
+ */
+public final class NearestItemTable {
+
+    private final int[] closestItemIndices;
+    private final float[] squaredDistances;
+
+    private NearestItemTable(int[] closestItemIndices, float[] squaredDistances) {
+        this.closestItemIndices = closestItemIndices;
+        this.squaredDistances = squaredDistances;
+    }
+
+    /**
+     * Determines for each reference {@link Item} the closest of the given {@link Item}s.
+     *
+     * @param squaredDistances     The {@link SquaredDistances} of the {@link DataPoint}.
+     * @param referenceItemIndices The positions of the reference {@link Item}s.
+     * @param itemIndices          The positions of the candidate {@link Item}s, which all share the same label.
+     * @return The new {@link NearestItemTable}.
+     */
+    static NearestItemTable of(SquaredDistances squaredDistances, int[] referenceItemIndices, int[] itemIndices) {
+        int[] closestItemIndices = new int[referenceItemIndices.length];
+        float[] closestSquaredDistances = new float[referenceItemIndices.length];
+        for (int i = 0; i < referenceItemIndices.length; i++) {
+            int closestItemIndex = squaredDistances.findClosestItem(referenceItemIndices[i], itemIndices);
+            closestItemIndices[i] = closestItemIndex;
+            closestSquaredDistances[i] = closestItemIndex == -1 ? Float.NaN : squaredDistances.getSquaredDistance(referenceItemIndices[i], closestItemIndex);
+        }
+        return new NearestItemTable(closestItemIndices, closestSquaredDistances);
+    }
+
+    /**
+     * Returns the position of the closest {@link Item} for the given occurrence of the reference label.
+     *
+     * @param occurrence The rank of the occurrence of the reference label.
+     * @return The position of the closest {@link Item} or -1 if none could be determined.
+     */
+    public int getClosestItemIndex(int occurrence) {
+        return closestItemIndices[occurrence];
+    }
+
+    /**
+     * Returns the squared distance to the closest {@link Item} for the given occurrence of the reference label.
+     *
+     * @param occurrence The rank of the occurrence of the reference label.
+     * @return The squared distance or {@link Float#NaN} if no closest {@link Item} could be determined.
+     */
+    public float getSquaredDistance(int occurrence) {
+        return squaredDistances[occurrence];
+    }
+}
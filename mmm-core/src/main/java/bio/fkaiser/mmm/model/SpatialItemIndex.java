@@ -0,0 +1,214 @@
+package bio.fkaiser.mmm.model;
+
+import de.bioforscher.singa.structure.algorithms.superimposition.fit3d.representations.RepresentationSchemeType;
+
+import java.util.Arrays;
+
+/**
+ * A spatial index of the {@link Item}s of a {@link DataPoint} that stores their positions in a uniform 3D grid. Squared distances are calculated
+ * on demand, hence memory is linear in the number of {@link Item}s, and closest {@link Item}s are determined by searching the grid cells in
+ * increasing distance to the reference. This is an alternative to the {@link SquaredDistanceMatrix} for large {@link DataPoint}s.
+ * <p>
+ * The index does not depend on the labels of the {@link Item}s, such that it stays valid if labels are changed.
+ *
+ * @author fk
+ */
+public class SpatialItemIndex implements SquaredDistances {
+
+    /**
+     * the default edge length of grid cells in Angstrom
+     */
+    public static final double DEFAULT_CELL_SIZE = 8.0;
+
+    /**
+     * up to this number of candidates the closest item is determined by linear search
+     */
+    private static final int LINEAR_SEARCH_LIMIT = 32;
+
+    private final double[][] positions;
+    private final RepresentationSchemeType representationSchemeType;
+    private final double cellSize;
+    private final double[] origin;
+    private final int[] cellCounts;
+    private final int[] cellStarts;
+    private final int[] cellItems;
+
+    SpatialItemIndex(double[][] positions, RepresentationSchemeType representationSchemeType, double cellSize) {
+        this.positions = positions;
+        this.representationSchemeType = representationSchemeType;
+
+        // determine bounding box of all items with position
+        double[] minimum = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] maximum = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        int positionCount = 0;
+        for (double[] position : positions) {
+            if (position == null) {
+                continue;
+            }
+            positionCount++;
+            for (int k = 0; k < 3; k++) {
+                minimum[k] = Math.min(minimum[k], position[k]);
+                maximum[k] = Math.max(maximum[k], position[k]);
+            }
+        }
+        if (positionCount == 0) {
+            minimum = new double[3];
+            maximum = new double[3];
+        }
+
+        // enlarge cells if the grid would be sparse
+        cellCounts = new int[3];
+        while (true) {
+            long totalCellCount = 1;
+            for (int k = 0; k < 3; k++) {
+                cellCounts[k] = (int) Math.floor((maximum[k] - minimum[k]) / cellSize) + 1;
+                totalCellCount *= cellCounts[k];
+            }
+            if (totalCellCount <= Math.max(64, 8L * positionCount)) {
+                break;
+            }
+            cellSize *= 2;
+        }
+        this.cellSize = cellSize;
+        origin = minimum;
+
+        // assign items to cells in compressed form
+        int totalCellCount = cellCounts[0] * cellCounts[1] * cellCounts[2];
+        cellStarts = new int[totalCellCount + 1];
+        int[] itemCells = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] == null) {
+                itemCells[i] = -1;
+                continue;
+            }
+            itemCells[i] = getCell(positions[i]);
+            cellStarts[itemCells[i] + 1]++;
+        }
+        for (int i = 0; i < totalCellCount; i++) {
+            cellStarts[i + 1] += cellStarts[i];
+        }
+        cellItems = new int[positionCount];
+        int[] cellFill = Arrays.copyOf(cellStarts, totalCellCount);
+        for (int i = 0; i < positions.length; i++) {
+            if (itemCells[i] != -1) {
+                cellItems[cellFill[itemCells[i]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@link SpatialItemIndex} for all {@link Item}s of the given {@link DataPoint}.
+     *
+     * @param dataPoint                The {@link DataPoint} to be indexed.
+     * @param representationSchemeType The {@link RepresentationSchemeType} that determines the positions of the {@link Item}s, null to use their
+     *                                 centroids.
+     * @param <LabelType>              The type of label.
+     * @return The new {@link SpatialItemIndex}.
+     */
+    public static <LabelType extends Comparable<LabelType>> SpatialItemIndex of(DataPoint<LabelType> dataPoint, RepresentationSchemeType representationSchemeType) {
+        return new SpatialItemIndex(SquaredDistanceMatrix.determinePositions(dataPoint, representationSchemeType), representationSchemeType,
+                                    DEFAULT_CELL_SIZE);
+    }
+
+    @Override
+    public int size() {
+        return positions.length;
+    }
+
+    @Override
+    public RepresentationSchemeType getRepresentationSchemeType() {
+        return representationSchemeType;
+    }
+
+    @Override
+    public long getMemorySize() {
+        return 40L * positions.length + 4L * (cellStarts.length + cellItems.length);
+    }
+
+    @Override
+    public float getSquaredDistance(int i, int j) {
+        if (i == j) {
+            return 0.0f;
+        }
+        if (positions[i] == null || positions[j] == null) {
+            return Float.NaN;
+        }
+        double dx = positions[i][0] - positions[j][0];
+        double dy = positions[i][1] - positions[j][1];
+        double dz = positions[i][2] - positions[j][2];
+        return (float) (dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The given {@link Item} positions have to be sorted in ascending order. For larger numbers of candidates the grid cells are searched in
+     * shells of increasing distance around the reference, until no unvisited cell can contain a closer candidate.
+     */
+    @Override
+    public int findClosestItem(int referenceIndex, int[] itemIndices) {
+        if (itemIndices.length <= LINEAR_SEARCH_LIMIT || positions[referenceIndex] == null) {
+            return SquaredDistances.super.findClosestItem(referenceIndex, itemIndices);
+        }
+        int[] referenceCell = new int[3];
+        for (int k = 0; k < 3; k++) {
+            referenceCell[k] = getCellCoordinate(positions[referenceIndex], k);
+        }
+        int maximalShell = Math.max(cellCounts[0], Math.max(cellCounts[1], cellCounts[2]));
+        int closestItemIndex = -1;
+        float closestSquaredDistance = Float.MAX_VALUE;
+        for (int shell = 0; shell <= maximalShell; shell++) {
+            for (int x = referenceCell[0] - shell; x <= referenceCell[0] + shell; x++) {
+                if (x < 0 || x >= cellCounts[0]) {
+                    continue;
+                }
+                for (int y = referenceCell[1] - shell; y <= referenceCell[1] + shell; y++) {
+                    if (y < 0 || y >= cellCounts[1]) {
+                        continue;
+                    }
+                    // only the outer layer of the shell has to be visited
+                    boolean onBoundary = Math.abs(x - referenceCell[0]) == shell || Math.abs(y - referenceCell[1]) == shell;
+                    int zStep = onBoundary || shell == 0 ? 1 : 2 * shell;
+                    for (int z = referenceCell[2] - shell; z <= referenceCell[2] + shell; z += zStep) {
+                        if (z < 0 || z >= cellCounts[2]) {
+                            continue;
+                        }
+                        int cell = (x * cellCounts[1] + y) * cellCounts[2] + z;
+                        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                            int itemIndex = cellItems[i];
+                            if (Arrays.binarySearch(itemIndices, itemIndex) < 0) {
+                                continue;
+                            }
+                            float squaredDistance = getSquaredDistance(referenceIndex, itemIndex);
+                            // ties are resolved like the linear search
+                            if (squaredDistance < closestSquaredDistance || (squaredDistance == closestSquaredDistance && itemIndex < closestItemIndex)) {
+                                closestSquaredDistance = squaredDistance;
+                                closestItemIndex = itemIndex;
+                            }
+                        }
+                    }
+                }
+            }
+            // all unvisited cells are at least the shell size away from the reference, due to rounding of cell coordinates unvisited candidates
+            // can lie exactly at this distance and would win ties by their index
+            double minimalUnvisitedDistance = shell * cellSize;
+            if (closestItemIndex != -1 && (double) closestSquaredDistance < minimalUnvisitedDistance * minimalUnvisitedDistance) {
+                break;
+            }
+        }
+        // candidates without position are not indexed, resolve them like the linear search
+        if (closestItemIndex == -1) {
+            return SquaredDistances.super.findClosestItem(referenceIndex, itemIndices);
+        }
+        return closestItemIndex;
+    }
+
+    private int getCell(double[] position) {
+        return (getCellCoordinate(position, 0) * cellCounts[1] + getCellCoordinate(position, 1)) * cellCounts[2] + getCellCoordinate(position, 2);
+    }
+
+    private int getCellCoordinate(double[] position, int dimension) {
+        int cellCoordinate = (int) Math.floor((position[dimension] - origin[dimension]) / cellSize);
+        return Math.max(0, Math.min(cellCounts[dimension] - 1, cellCoordinate));
+    }
+}
@@ -0,0 +1,222 @@
+package bio.fkaiser.mmm.model;
+
+import de.bioforscher.singa.structure.algorithms.superimposition.fit3d.representations.RepresentationSchemeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe cache of {@link SquaredDistances} keyed by {@link DataPointIdentifier}, {@link RepresentationSchemeType}, and the fingerprint of
+ * the {@link Item}s, such that a single instance can be shared between all consumers of distances during a mining run. {@link DataPoint}s are
+ * represented by a {@link SquaredDistanceMatrix} or, if they contain more {@link Item}s than the spatial index threshold or a matrix can hold,
+ * by a {@link SpatialItemIndex} that avoids quadratic memory. Each entry is calculated exactly once by the first requesting thread, concurrent
+ * requests for the same {@link DataPoint} wait for this calculation while requests for other {@link DataPoint}s proceed. Lookups of cached
+ * entries never lock, they only stamp the entry with the current access time. As soon as the cache exceeds its maximal size, the entries with
+ * the oldest stamps are evicted, which approximates a least recently used policy.
+ *
+ * @author fk
+ */
+public class SquaredDistanceCache {
+
+    /**
+     * the maximal size if the cache should not be bounded
+     */
+    public static final long UNBOUNDED = -1;
+
+    /**
+     * the spatial index threshold if distance matrices should always be used
+     */
+    public static final int NO_SPATIAL_INDEX = -1;
+
+    private static final Logger logger = LoggerFactory.getLogger(SquaredDistanceCache.class);
+
+    private final Map<CacheKey, CacheEntry> cacheEntries;
+    private final int spatialIndexThreshold;
+    private final AtomicLong accessClock;
+    private final AtomicLong size;
+    /**
+     * serializes evictions only, lookups never acquire it
+     */
+    private final ReentrantLock evictionLock;
+    private volatile long maximalSize;
+
+    public SquaredDistanceCache() {
+        this(UNBOUNDED, NO_SPATIAL_INDEX);
+    }
+
+    public SquaredDistanceCache(long maximalSize, int spatialIndexThreshold) {
+        this.maximalSize = maximalSize;
+        this.spatialIndexThreshold = spatialIndexThreshold;
+        cacheEntries = new ConcurrentHashMap<>();
+        accessClock = new AtomicLong();
+        size = new AtomicLong();
+        evictionLock = new ReentrantLock();
+    }
+
+    public long getMaximalSize() {
+        return maximalSize;
+    }
+
+    /**
+     * Sets the maximal size of this cache in bytes, {@link #UNBOUNDED} disables eviction.
+     *
+     * @param maximalSize The maximal size in bytes.
+     */
+    public void setMaximalSize(long maximalSize) {
+        this.maximalSize = maximalSize;
+        evict();
+    }
+
+    /**
+     * Returns the current size of all cached {@link SquaredDistances} in bytes.
+     *
+     * @return The current size in bytes.
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the {@link SquaredDistances} of the given {@link DataPoint}, which are calculated if not already cached.
+     *
+     * @param dataPoint                The {@link DataPoint} for which the {@link SquaredDistances} should be obtained.
+     * @param representationSchemeType The {@link RepresentationSchemeType} that determines the positions of the {@link Item}s, null to use their
+     *                                 centroids.
+     * @return The {@link SquaredDistances}.
+     */
+    public SquaredDistances obtain(DataPoint<?> dataPoint, RepresentationSchemeType representationSchemeType) {
+        CacheKey cacheKey = new CacheKey(dataPoint.getDataPointIdentifier(), representationSchemeType, dataPoint.getItemFingerprint());
+        CacheEntry cacheEntry = cacheEntries.get(cacheKey);
+        if (cacheEntry != null) {
+            logger.trace("using stored squared distances for data point {}", dataPoint);
+            cacheEntry.lastAccess = accessClock.incrementAndGet();
+            return cacheEntry.get(cacheKey);
+        }
+        CacheEntry newCacheEntry = new CacheEntry(dataPoint, representationSchemeType);
+        cacheEntry = cacheEntries.computeIfAbsent(cacheKey, key -> newCacheEntry);
+        if (cacheEntry != newCacheEntry) {
+            // another thread published the calculation in the meantime
+            cacheEntry.lastAccess = accessClock.incrementAndGet();
+            return cacheEntry.get(cacheKey);
+        }
+        logger.trace("calculating squared distances for data point {} de novo", dataPoint);
+        cacheEntry.calculation.run();
+        SquaredDistances squaredDistances = cacheEntry.get(cacheKey);
+        // entries become evictable only once they are accounted for
+        cacheEntry.memorySize = squaredDistances.getMemorySize();
+        cacheEntry.lastAccess = accessClock.incrementAndGet();
+        size.addAndGet(cacheEntry.memorySize);
+        cacheEntry.accounted = true;
+        evict();
+        return squaredDistances;
+    }
+
+    /**
+     * Evicts the {@link SquaredDistances} with the oldest access stamps until the cache does not exceed its maximal size.
+     */
+    private void evict() {
+        long currentMaximalSize = maximalSize;
+        if (currentMaximalSize == UNBOUNDED || size.get() <= currentMaximalSize) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            // snapshot access stamps, which are unique but may change by concurrent lookups, calculations in progress are not accounted for yet
+            // and cannot be evicted
+            TreeMap<Long, Map.Entry<CacheKey, CacheEntry>> evictableEntries = new TreeMap<>();
+            for (Map.Entry<CacheKey, CacheEntry> entry : cacheEntries.entrySet()) {
+                if (entry.getValue().accounted) {
+                    evictableEntries.put(entry.getValue().lastAccess, entry);
+                }
+            }
+            for (Map.Entry<CacheKey, CacheEntry> entry : evictableEntries.values()) {
+                if (size.get() <= currentMaximalSize) {
+                    break;
+                }
+                if (cacheEntries.remove(entry.getKey(), entry.getValue())) {
+                    logger.trace("evicting squared distances of {}", entry.getKey());
+                    size.addAndGet(-entry.getValue().memorySize);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private class CacheEntry {
+
+        private final FutureTask<SquaredDistances> calculation;
+        private volatile long lastAccess;
+        /**
+         * the size of the completed calculation, which is published by setting the entry accounted
+         */
+        private long memorySize;
+        private volatile boolean accounted;
+
+        private CacheEntry(DataPoint<?> dataPoint, RepresentationSchemeType representationSchemeType) {
+            calculation = new FutureTask<>(() -> calculateSquaredDistances(dataPoint, representationSchemeType));
+        }
+
+        private <LabelType extends Comparable<LabelType>> SquaredDistances calculateSquaredDistances(DataPoint<LabelType> dataPoint,
+                                                                                                     RepresentationSchemeType representationSchemeType) {
+            int itemCount = dataPoint.getItems().size();
+            if ((spatialIndexThreshold != NO_SPATIAL_INDEX && itemCount > spatialIndexThreshold) || itemCount > SquaredDistanceMatrix.MAXIMAL_SIZE) {
+                return SpatialItemIndex.of(dataPoint, representationSchemeType);
+            }
+            return SquaredDistanceMatrix.of(dataPoint, representationSchemeType);
+        }
+
+        private SquaredDistances get(CacheKey cacheKey) {
+            try {
+                return calculation.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataPointCacheException("interrupted while waiting for squared distances of " + cacheKey, e);
+            } catch (ExecutionException e) {
+                // allow subsequent requests to retry the calculation, failed entries are never accounted for
+                cacheEntries.remove(cacheKey, this);
+                throw new DataPointCacheException("failed to calculate squared distances of " + cacheKey, e.getCause());
+            }
+        }
+    }
+
+    private static final class CacheKey {
+
+        private final DataPointIdentifier dataPointIdentifier;
+        private final RepresentationSchemeType representationSchemeType;
+        private final long itemFingerprint;
+
+        private CacheKey(DataPointIdentifier dataPointIdentifier, RepresentationSchemeType representationSchemeType, long itemFingerprint) {
+            this.dataPointIdentifier = dataPointIdentifier;
+            this.representationSchemeType = representationSchemeType;
+            this.itemFingerprint = itemFingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CacheKey cacheKey = (CacheKey) o;
+            return itemFingerprint == cacheKey.itemFingerprint && dataPointIdentifier.equals(cacheKey.dataPointIdentifier)
+                   && representationSchemeType == cacheKey.representationSchemeType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dataPointIdentifier, representationSchemeType, itemFingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return "data point " + dataPointIdentifier + " (" + (representationSchemeType == null ? "CENTROID" : representationSchemeType) + ")";
+        }
+    }
+}
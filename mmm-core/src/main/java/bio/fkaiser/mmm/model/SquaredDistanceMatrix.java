@@ -0,0 +1,126 @@
+package bio.fkaiser.mmm.model;
+
+import de.bioforscher.singa.mathematics.vectors.Vector3D;
+import de.bioforscher.singa.structure.algorithms.superimposition.fit3d.representations.RepresentationSchemeType;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The squared pairwise distances between all {@link Item}s of a {@link DataPoint}, addressed by the positions of the {@link Item}s in the
+ * {@link DataPoint}. Only the strict upper triangle is stored as packed single precision array, the diagonal is implicitly zero. Distances
+ * involving {@link Item}s without position are {@link Float#NaN}.
+ *
+ * @author fk
+ */
+public class SquaredDistanceMatrix implements SquaredDistances {
+
+    /**
+     * the maximal number of {@link Item}s whose packed triangle fits into a single array
+     */
+    public static final int MAXIMAL_SIZE = 65536;
+
+    private final int size;
+    private final float[] values;
+    private final RepresentationSchemeType representationSchemeType;
+
+    private SquaredDistanceMatrix(int size, float[] values, RepresentationSchemeType representationSchemeType) {
+        this.size = size;
+        this.values = values;
+        this.representationSchemeType = representationSchemeType;
+    }
+
+    /**
+     * Calculates the {@link SquaredDistanceMatrix} for all {@link Item}s of the given {@link DataPoint}.
+     *
+     * @param dataPoint                The {@link DataPoint} for which distances should be calculated.
+     * @param representationSchemeType The {@link RepresentationSchemeType} that determines the positions of the {@link Item}s, null to use their
+     *                                 centroids.
+     * @param <LabelType>              The type of label.
+     * @return The new {@link SquaredDistanceMatrix}.
+     */
+    public static <LabelType extends Comparable<LabelType>> SquaredDistanceMatrix of(DataPoint<LabelType> dataPoint, RepresentationSchemeType representationSchemeType) {
+        return of(determinePositions(dataPoint, representationSchemeType), representationSchemeType);
+    }
+
+    /**
+     * Calculates the {@link SquaredDistanceMatrix} for the given positions.
+     *
+     * @param positions                The coordinates of each {@link Item} or null if an {@link Item} has no position.
+     * @param representationSchemeType The {@link RepresentationSchemeType} that determined the positions.
+     * @return The new {@link SquaredDistanceMatrix}.
+     */
+    static SquaredDistanceMatrix of(double[][] positions, RepresentationSchemeType representationSchemeType) {
+        int size = positions.length;
+        if (size > MAXIMAL_SIZE) {
+            throw new IllegalArgumentException("cannot store squared distances of " + size + " items in a matrix, at most " + MAXIMAL_SIZE
+                                               + " are supported");
+        }
+        float[] values = new float[(int) ((long) size * (size - 1) / 2)];
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (positions[i] == null || positions[j] == null) {
+                    values[index++] = Float.NaN;
+                    continue;
+                }
+                double dx = positions[i][0] - positions[j][0];
+                double dy = positions[i][1] - positions[j][1];
+                double dz = positions[i][2] - positions[j][2];
+                values[index++] = (float) (dx * dx + dy * dy + dz * dz);
+            }
+        }
+        return new SquaredDistanceMatrix(size, values, representationSchemeType);
+    }
+
+    /**
+     * Determines the positions of all {@link Item}s of the given {@link DataPoint}.
+     *
+     * @param dataPoint                The {@link DataPoint}.
+     * @param representationSchemeType The {@link RepresentationSchemeType} that determines the positions of the {@link Item}s, null to use their
+     *                                 centroids.
+     * @param <LabelType>              The type of label.
+     * @return The coordinates of each {@link Item} or null if an {@link Item} has no position.
+     */
+    static <LabelType extends Comparable<LabelType>> double[][] determinePositions(DataPoint<LabelType> dataPoint, RepresentationSchemeType representationSchemeType) {
+        List<Item<LabelType>> items = dataPoint.getItems();
+        double[][] positions = new double[items.size()][];
+        for (int i = 0; i < items.size(); i++) {
+            Item<LabelType> item = items.get(i);
+            Optional<Vector3D> position = representationSchemeType != null ? item.getPosition(representationSchemeType) : item.getPosition();
+            if (position.isPresent()) {
+                positions[i] = new double[]{position.get().getX(), position.get().getY(), position.get().getZ()};
+            }
+        }
+        return positions;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public RepresentationSchemeType getRepresentationSchemeType() {
+        return representationSchemeType;
+    }
+
+    @Override
+    public long getMemorySize() {
+        return 4L * values.length;
+    }
+
+    @Override
+    public float getSquaredDistance(int i, int j) {
+        if (i == j) {
+            return 0.0f;
+        }
+        if (i > j) {
+            int swap = i;
+            i = j;
+            j = swap;
+        }
+        // offset of row i in long arithmetic, which would overflow for large matrices
+        return values[(int) ((long) i * (2 * size - i - 1) / 2) + j - i - 1];
+    }
+}
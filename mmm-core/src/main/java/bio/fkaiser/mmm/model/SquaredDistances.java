@@ -0,0 +1,67 @@
+package bio.fkaiser.mmm.model;
+
+import de.bioforscher.singa.structure.algorithms.superimposition.fit3d.representations.RepresentationSchemeType;
+
+/**
+ * Provides squared distances between the {@link Item}s of a {@link DataPoint}, addressed by the positions of the {@link Item}s in the
+ * {@link DataPoint}. Distances involving {@link Item}s without position are {@link Float#NaN}.
+ *
+ * @author fk
+ */
+public interface SquaredDistances {
+
+    /**
+     * Returns the number of {@link Item}s.
+     *
+     * @return The number of {@link Item}s.
+     */
+    int size();
+
+    /**
+     * Returns the {@link RepresentationSchemeType} that determined the positions of the {@link Item}s.
+     *
+     * @return The {@link RepresentationSchemeType} or null if centroids were used.
+     */
+    RepresentationSchemeType getRepresentationSchemeType();
+
+    /**
+     * Returns the approximate memory footprint.
+     *
+     * @return The approximate size in bytes.
+     */
+    long getMemorySize();
+
+    /**
+     * Returns the squared distance between the {@link Item}s at the given positions.
+     *
+     * @param i The position of the first {@link Item}.
+     * @param j The position of the second {@link Item}.
+     * @return The squared distance.
+     */
+    float getSquaredDistance(int i, int j);
+
+    /**
+     * Returns the position of the closest {@link Item} of the given {@link Item} positions in respect to the reference {@link Item}.
+     *
+     * @param referenceIndex The position of the reference {@link Item}.
+     * @param itemIndices    The positions of the candidate {@link Item}s, which all share the same label.
+     * @return The position of the closest {@link Item}, the first candidate if no distance is defined because of missing positions, or -1 if
+     * there are no candidates.
+     */
+    default int findClosestItem(int referenceIndex, int[] itemIndices) {
+        int closestItemIndex = -1;
+        float closestSquaredDistance = Float.MAX_VALUE;
+        for (int itemIndex : itemIndices) {
+            float squaredDistance = getSquaredDistance(referenceIndex, itemIndex);
+            if (squaredDistance < closestSquaredDistance) {
+                closestSquaredDistance = squaredDistance;
+                closestItemIndex = itemIndex;
+            }
+        }
+        // like the previous label based lookup, never fail if candidates are present
+        if (closestItemIndex == -1 && itemIndices.length > 0) {
+            return itemIndices[0];
+        }
+        return closestItemIndex;
+    }
+}
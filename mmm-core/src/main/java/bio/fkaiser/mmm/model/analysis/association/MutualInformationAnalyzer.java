@@ -14,6 +14,7 @@ import javafx.application.Application;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -116,20 +117,19 @@ public class MutualInformationAnalyzer<LabelType extends Comparable<LabelType>>
             for (int j = i + 1; j < totalItemsets.size(); j++) {
                 Itemset<LabelType> itemsetTwo = totalItemsets.get(j);
                 // cap to smaller observations
-                List<Double> itemsetOneObservations = distributionMetric.getDistributions().get(itemsetOne).getObservations();
-                List<Double> itemsetTwoObservations = distributionMetric.getDistributions().get(itemsetTwo).getObservations();
-                int itemsetOneDistributionSize = itemsetOneObservations.size();
-                int itemsetTwoDistributionSize = itemsetTwoObservations.size();
+                double[] itemsetOneObservations = distributionMetric.getDistributions().get(itemsetOne).getObservations();
+                double[] itemsetTwoObservations = distributionMetric.getDistributions().get(itemsetTwo).getObservations();
+                int itemsetOneDistributionSize = itemsetOneObservations.length;
+                int itemsetTwoDistributionSize = itemsetTwoObservations.length;
 
                 if (itemsetOneDistributionSize > itemsetTwoDistributionSize) {
-                    itemsetOneObservations = itemsetOneObservations.subList(0, itemsetTwoDistributionSize);
+                    itemsetOneObservations = Arrays.copyOf(itemsetOneObservations, itemsetTwoDistributionSize);
                 } else if (itemsetTwoDistributionSize > itemsetOneDistributionSize) {
-                    itemsetTwoObservations = itemsetTwoObservations.subList(0, itemsetOneDistributionSize);
+                    itemsetTwoObservations = Arrays.copyOf(itemsetTwoObservations, itemsetOneDistributionSize);
                 }
 
                 logger.debug("calculating mutual information for pair {}_{}", itemsetOne, itemsetTwo);
-                double mi = MutualInformation.calculate(itemsetOneObservations.stream().mapToDouble(Double::doubleValue).toArray(),
-                                                        itemsetTwoObservations.stream().mapToDouble(Double::doubleValue).toArray());
+                double mi = MutualInformation.calculate(itemsetOneObservations, itemsetTwoObservations);
 
                 mutualInformation.put(mi, new Pair<>(itemsetOne, itemsetTwo));
             }
@@ -0,0 +1,169 @@
+package bio.fkaiser.mmm.model.analysis.statistics;
+
+import bio.fkaiser.mmm.model.Distribution;
+import bio.fkaiser.mmm.model.Itemset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent cache of the sample values of background {@link Distribution}s. The cache holds one file per content hash of the
+ * {@link DistributionSampler}, i.e. per data set and sampling settings, which stores the sample values of each round per {@link Itemset}.
+ * Cached values are restored into a {@link DistributionSampler}, which extends them by further rounds if required.
+ * <p>
+ * The cache is a pure optimization, hence failures to read or write it are logged and otherwise ignored.
+ *
+ * @author fk
+ */
+class BackgroundDistributionCache<LabelType extends Comparable<LabelType>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundDistributionCache.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".bgd";
+
+    private final Path cacheFilePath;
+    private final Map<String, double[]> cachedRoundValues;
+
+    BackgroundDistributionCache(Path cacheLocation, String contentHash) {
+        cacheFilePath = cacheLocation.resolve(contentHash + FILE_EXTENSION);
+        cachedRoundValues = new HashMap<>();
+        if (Files.exists(cacheFilePath)) {
+            read();
+        }
+    }
+
+    /**
+     * Restores the cached sample values of the given {@link Itemset}s into the {@link DistributionSampler}, at most for the given number of
+     * rounds.
+     *
+     * @param distributionSampler The {@link DistributionSampler} to be filled.
+     * @param itemsets            The {@link Itemset}s to be restored.
+     * @param roundCount          The maximal number of rounds to be restored.
+     */
+    void restore(DistributionSampler<LabelType> distributionSampler, List<Itemset<LabelType>> itemsets, int roundCount) {
+        int restoredItemsets = 0;
+        for (Itemset<LabelType> itemset : itemsets) {
+            double[] roundValues = cachedRoundValues.get(getItemsetKey(itemset));
+            if (roundValues != null) {
+                double[] restoredRoundValues = new double[Math.min(roundValues.length, roundCount)];
+                System.arraycopy(roundValues, 0, restoredRoundValues, 0, restoredRoundValues.length);
+                distributionSampler.restore(itemset, restoredRoundValues);
+                restoredItemsets++;
+            }
+        }
+        logger.info("restored cached background samples of {} of {} itemsets from {}", restoredItemsets, itemsets.size(), cacheFilePath);
+    }
+
+    /**
+     * Stores the sample values of the given {@link Itemset}s if they cover more rounds than the cached ones and writes the cache if it changed.
+     *
+     * @param distributionSampler The {@link DistributionSampler} that holds the sample values.
+     * @param itemsets            The {@link Itemset}s to be stored.
+     */
+    void store(DistributionSampler<LabelType> distributionSampler, List<Itemset<LabelType>> itemsets) {
+        boolean changed = false;
+        for (Itemset<LabelType> itemset : itemsets) {
+            if (distributionSampler.getSampledRounds(itemset) > 0) {
+                changed |= update(getItemsetKey(itemset), distributionSampler.getRoundValues(itemset));
+            }
+        }
+        if (changed) {
+            write();
+        }
+    }
+
+    /**
+     * Replaces the cached sample values of the given key if the given ones cover more rounds.
+     *
+     * @param itemsetKey  The key of the {@link Itemset}.
+     * @param roundValues The sample values of each round.
+     * @return True if the cache changed.
+     */
+    boolean update(String itemsetKey, double[] roundValues) {
+        double[] cachedValues = cachedRoundValues.get(itemsetKey);
+        if (cachedValues == null || cachedValues.length < roundValues.length) {
+            cachedRoundValues.put(itemsetKey, roundValues);
+            return true;
+        }
+        return false;
+    }
+
+    double[] getCachedRoundValues(String itemsetKey) {
+        return cachedRoundValues.get(itemsetKey);
+    }
+
+    Path getCacheFilePath() {
+        return cacheFilePath;
+    }
+
+    private String getItemsetKey(Itemset<LabelType> itemset) {
+        // items of itemsets are sorted, hence equal itemsets have equal keys
+        return itemset.toSimpleString();
+    }
+
+    private void read() {
+        try (DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFilePath)))) {
+            if (dataInputStream.readInt() != FORMAT_VERSION) {
+                logger.warn("ignoring background distribution cache {} of unknown format", cacheFilePath);
+                return;
+            }
+            // lengths are bounded by the file size, such that corrupt files never cause excessive allocations
+            long fileSize = Files.size(cacheFilePath);
+            int entryCount = dataInputStream.readInt();
+            if (entryCount < 0 || entryCount > fileSize) {
+                throw new IOException("invalid entry count " + entryCount);
+            }
+            for (int i = 0; i < entryCount; i++) {
+                String itemsetKey = dataInputStream.readUTF();
+                int roundCount = dataInputStream.readInt();
+                if (roundCount < 0 || (long) roundCount * Double.BYTES > fileSize) {
+                    throw new IOException("invalid round count " + roundCount + " of itemset " + itemsetKey);
+                }
+                double[] roundValues = new double[roundCount];
+                for (int j = 0; j < roundValues.length; j++) {
+                    roundValues[j] = dataInputStream.readDouble();
+                }
+                cachedRoundValues.put(itemsetKey, roundValues);
+            }
+        } catch (IOException | RuntimeException e) {
+            // any failure is treated as a cache miss
+            logger.warn("failed to read background distribution cache {}", cacheFilePath, e);
+            cachedRoundValues.clear();
+        }
+    }
+
+    void write() {
+        Path temporaryFilePath = null;
+        try {
+            Files.createDirectories(cacheFilePath.getParent());
+            // write to temporary file first such that concurrent runs never read partial caches
+            temporaryFilePath = Files.createTempFile(cacheFilePath.getParent(), cacheFilePath.getFileName().toString(), ".tmp");
+            try (DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFilePath)))) {
+                dataOutputStream.writeInt(FORMAT_VERSION);
+                dataOutputStream.writeInt(cachedRoundValues.size());
+                for (Map.Entry<String, double[]> entry : cachedRoundValues.entrySet()) {
+                    dataOutputStream.writeUTF(entry.getKey());
+                    dataOutputStream.writeInt(entry.getValue().length);
+                    for (double roundValue : entry.getValue()) {
+                        dataOutputStream.writeDouble(roundValue);
+                    }
+                }
+            }
+            Files.move(temporaryFilePath, cacheFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("stored background samples of {} itemsets in {}", cachedRoundValues.size(), cacheFilePath);
+        } catch (IOException e) {
+            logger.warn("failed to write background distribution cache {}", cacheFilePath, e);
+            if (temporaryFilePath != null) {
+                temporaryFilePath.toFile().delete();
+            }
+        }
+    }
+}
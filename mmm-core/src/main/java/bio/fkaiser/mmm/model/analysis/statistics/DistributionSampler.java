@@ -1,11 +1,13 @@
 package bio.fkaiser.mmm.model.analysis.statistics;
 
 import bio.fkaiser.mmm.ItemsetMiner;
-import bio.fkaiser.mmm.Itemsets;
+import bio.fkaiser.mmm.MiningExecutor;
 import bio.fkaiser.mmm.model.*;
 import bio.fkaiser.mmm.model.configurations.metrics.ConsensusMetricConfiguration;
 import bio.fkaiser.mmm.model.metrics.*;
+import bio.fkaiser.mmm.model.metrics.cohesion.ItemsetObservation;
 import bio.fkaiser.mmm.model.metrics.cohesion.VertexCandidateGenerator;
+import de.bioforscher.singa.mathematics.vectors.Vector3D;
 import de.bioforscher.singa.structure.algorithms.superimposition.affinity.AffinityAlignment;
 import de.bioforscher.singa.structure.algorithms.superimposition.consensus.ConsensusAlignment;
 import de.bioforscher.singa.structure.algorithms.superimposition.consensus.ConsensusBuilder;
@@ -14,38 +16,48 @@ import de.bioforscher.singa.structure.model.oak.StructuralMotif;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * This allows the sampling of background distributions of {@link Itemset}s regarding supported {@link DistributionMetric}s.
  * To sample the background distributions the labels of each {@link DataPoint} are shuffled such that the original frequency is not changed.
+ * <p>
+ * Sampling rounds and the {@link Itemset}s of each round are independent and sampled in parallel. Each round draws its own label permutations
+ * from a seed that is derived from the given seed, hence results are reproducible regardless of scheduling. Each {@link Itemset} can be
+ * extended to any number of rounds, where the permutation of each {@link DataPoint} depends only on the round, such that the sampled values of
+ * an {@link Itemset} do not depend on the other {@link Itemset}s sampled alongside. Hence, sample values can also be restored from a
+ * {@link BackgroundDistributionCache} and extended by further rounds. Permutations are applied to views of the {@link DataPoint}s that share their
+ * structures, such that the original {@link DataPoint}s are never changed.
  *
  * @author fk
  */
 class DistributionSampler<LabelType extends Comparable<LabelType>> extends DataPointCache<LabelType> {
 
     private static final Logger logger = LoggerFactory.getLogger(DistributionSampler.class);
-    private static final int AVAILABLE_PROCESSORS = Runtime.getRuntime().availableProcessors();
 
     private final List<DataPoint<LabelType>> dataPoints;
-    private final List<Itemset<LabelType>> itemsets;
-    private final int sampleSize;
-    private final int levelOfParallelism;
+    private final Map<DataPoint<LabelType>, Integer> dataPointIndices;
+    private final long seed;
+    private final SplittableRandom seedRandom;
+    private final List<Long> roundSeeds;
+    private final Map<Itemset<LabelType>, RoundValues> itemsetRoundValues;
     private final Class<? extends DistributionMetric> distributionMetricType;
     private final Class<? extends ExtractionMetric> extractionMetricType;
     private final Map<Itemset<LabelType>, Distribution> backgroundDistributions;
     private final boolean vertexOne;
-    private final ExecutorService executorService;
+    private final MiningExecutor miningExecutor;
+
+    private final DataPointLabelIndex<LabelType> dataPointLabelIndex;
 
     private double clusterCutoff;
-    private Map<Itemset<LabelType>, Integer> itemsetObservationCounts;
 
-    DistributionSampler(ItemsetMiner<LabelType> itemsetMiner, Class<? extends DistributionMetric> distributionMetricType, int levelOfParallelism, int sampleSize) {
+    DistributionSampler(ItemsetMiner<LabelType> itemsetMiner, Class<? extends DistributionMetric> distributionMetricType, long seed) {
 
         super(itemsetMiner.getEvaluationMetrics().stream()
                           .filter(ExtractionMetric.class::isInstance)
@@ -55,17 +67,24 @@ class DistributionSampler<LabelType extends Comparable<LabelType>> extends DataP
                           .findAny()
                           .orElse(null));
 
+        // reuse distance matrices of the mining run, positions are not affected by label randomization
+        setSquaredDistanceCache(itemsetMiner.getSquaredDistanceCache());
+
         this.distributionMetricType = distributionMetricType;
-        this.levelOfParallelism = levelOfParallelism;
-        this.sampleSize = sampleSize;
-
-        // work with copy of data points such that original labels stay the same
-        dataPoints = itemsetMiner.getDataPoints().stream()
-                                 .map(DataPoint::getCopy)
-                                 .collect(Collectors.toList());
-        itemsets = itemsetMiner.getTotalItemsets();
+        this.seed = seed;
+        seedRandom = new SplittableRandom(seed);
+        roundSeeds = new ArrayList<>();
+        itemsetRoundValues = new HashMap<>();
+
+        dataPoints = itemsetMiner.getDataPoints();
+        dataPointIndices = new IdentityHashMap<>();
+        for (int i = 0; i < dataPoints.size(); i++) {
+            dataPointIndices.put(dataPoints.get(i), i);
+        }
+        // shuffling preserves the labels of each data point, hence supporting data points are the same in all rounds
+        dataPointLabelIndex = new DataPointLabelIndex<>(dataPoints, itemsetMiner.getLabelDictionary());
         backgroundDistributions = new HashMap<>();
-        executorService = (levelOfParallelism == -1) ? Executors.newWorkStealingPool() : Executors.newWorkStealingPool(levelOfParallelism);
+        miningExecutor = itemsetMiner.getMiningExecutor();
 
         logger.info("distribution sampler initialized for distribution metric type " + distributionMetricType.getSimpleName());
 
@@ -86,192 +105,293 @@ class DistributionSampler<LabelType extends Comparable<LabelType>> extends DataP
                                         .orElseThrow(() -> new DistributionSamplerException("failed to determine extraction metric type"))
                                         .getClusterCutoffValue();
         }
-
-        runBackgroundSampling();
     }
 
     public Map<Itemset<LabelType>, Distribution> getBackgroundDistributions() {
         return backgroundDistributions;
     }
 
-    private void addSampleValueForItemset(Itemset<LabelType> itemset, double sampleValue) {
-        if (backgroundDistributions.containsKey(itemset)) {
-            backgroundDistributions.get(itemset).addObservationValue(sampleValue);
-        } else {
-            Distribution distribution = new Distribution(distributionMetricType);
-            distribution.addObservationValue(sampleValue);
-            backgroundDistributions.put(itemset, distribution);
+    /**
+     * Returns the number of rounds that were sampled for the given {@link Itemset}.
+     *
+     * @param itemset The {@link Itemset}.
+     * @return The number of sampled rounds.
+     */
+    int getSampledRounds(Itemset<LabelType> itemset) {
+        RoundValues roundValues = itemsetRoundValues.get(itemset);
+        return roundValues == null ? 0 : roundValues.count;
+    }
+
+    /**
+     * Returns the sample values of all sampled rounds for the given {@link Itemset}.
+     *
+     * @param itemset The {@link Itemset}.
+     * @return The sample value of each round, {@link Double#NaN} for rounds in which the {@link Itemset} could not be observed.
+     */
+    double[] getRoundValues(Itemset<LabelType> itemset) {
+        RoundValues roundValues = itemsetRoundValues.get(itemset);
+        return roundValues == null ? new double[0] : Arrays.copyOf(roundValues.values, roundValues.count);
+    }
+
+    /**
+     * Restores previously sampled values of the first rounds for the given {@link Itemset}, which must not have been sampled yet.
+     *
+     * @param itemset     The {@link Itemset}.
+     * @param roundValues The sample value of each round, {@link Double#NaN} for rounds in which the {@link Itemset} could not be observed.
+     */
+    void restore(Itemset<LabelType> itemset, double[] roundValues) {
+        if (getSampledRounds(itemset) > 0) {
+            throw new DistributionSamplerException("sample values of itemset " + itemset + " cannot be restored after sampling");
+        }
+        for (double roundValue : roundValues) {
+            addRoundValue(itemset, roundValue);
+        }
+    }
+
+    private void addRoundValue(Itemset<LabelType> itemset, double roundValue) {
+        itemsetRoundValues.computeIfAbsent(itemset, key -> new RoundValues()).add(roundValue);
+        if (!Double.isNaN(roundValue)) {
+            backgroundDistributions.computeIfAbsent(itemset, key -> new Distribution(distributionMetricType))
+                                   .addObservationValue(roundValue);
         }
     }
 
+    private long getRoundSeed(int round) {
+        // seeds are derived in the order of rounds
+        while (roundSeeds.size() <= round) {
+            roundSeeds.add(seedRandom.nextLong());
+        }
+        return roundSeeds.get(round);
+    }
+
     /**
-     * Runs the background sampling for the specified number of samples.
+     * Extends the sampling of the given {@link Itemset}s to the given number of rounds. Each pair of round and {@link Itemset} is processed as
+     * task of its own, such that the parallelism is not limited by the number of rounds, and sample values are merged in the order of the rounds.
+     * {@link Itemset}s that were already sampled for enough rounds are not sampled again.
+     *
+     * @param itemsets   The {@link Itemset}s to be sampled.
+     * @param roundCount The number of sampling rounds.
      */
-    private void runBackgroundSampling() {
-        for (int i = 0; i < sampleSize; i++) {
-            if (i % Math.floor(sampleSize / 10) == 0) {
-                logger.info("running background sampling round {} of {}", i + 1, sampleSize);
-            }
-            randomizeDataPoints();
-            // reset itemset observation counts in each sample round
-            itemsetObservationCounts = new HashMap<>();
-
-            // create chunks for parallel execution
-            List<List<Itemset<LabelType>>> partitions = partition(new ArrayList<>(itemsets), (levelOfParallelism == -1) ? AVAILABLE_PROCESSORS : levelOfParallelism);
-
-            // create jobs
-            List<DistributionCalculator> jobs = partitions.stream()
-                                                          .map(DistributionCalculator::new)
-                                                          .collect(Collectors.toList());
-
-            // execute jobs
-            try {
-                executorService.invokeAll(jobs).forEach(future -> {
-                    try {
-                        future.get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        throw new IllegalStateException(e);
-                    }
-                });
-            } catch (InterruptedException e) {
-                logger.error("parallel cohesion execution of {} failed", this, e);
+    void sampleUpTo(List<Itemset<LabelType>> itemsets, int roundCount) {
+        int[] sampledRounds = new int[itemsets.size()];
+        int firstRound = roundCount;
+        for (int i = 0; i < itemsets.size(); i++) {
+            sampledRounds[i] = getSampledRounds(itemsets.get(i));
+            firstRound = Math.min(firstRound, sampledRounds[i]);
+        }
+        if (firstRound >= roundCount) {
+            return;
+        }
+        // derive all seeds before they are read by parallel tasks
+        getRoundSeed(roundCount - 1);
+        List<RoundPermutation> roundPermutations = new ArrayList<>(roundCount - firstRound);
+        List<int[]> samplingTasks = new ArrayList<>();
+        for (int round = firstRound; round < roundCount; round++) {
+            roundPermutations.add(new RoundPermutation(roundSeeds.get(round)));
+            for (int i = 0; i < itemsets.size(); i++) {
+                if (round >= sampledRounds[i]) {
+                    samplingTasks.add(new int[]{round, i});
+                }
             }
         }
+        // fill the shared distance cache once per supporting data point, otherwise concurrent sampling tasks wait for the same calculations
+        Set<DataPoint<LabelType>> supportingDataPoints = new LinkedHashSet<>();
+        for (Itemset<LabelType> itemset : itemsets) {
+            supportingDataPoints.addAll(dataPointLabelIndex.selectDataPoints(itemset.getItems()));
+        }
+        miningExecutor.computeInParallel("background distances", new ArrayList<>(supportingDataPoints), this::obtainSquaredDistances);
+        int startRound = firstRound;
+        logger.info("running background sampling rounds {} to {} for {} itemsets", firstRound + 1, roundCount, itemsets.size());
+        List<Double> sampleValues = miningExecutor.computeInParallel("background sampling", samplingTasks,
+                                                                     samplingTask -> sampleItemset(itemsets.get(samplingTask[1]),
+                                                                                                   roundPermutations.get(samplingTask[0] - startRound)));
+        // tasks are ordered by rounds, hence values are merged in the order of the rounds
+        for (int j = 0; j < samplingTasks.size(); j++) {
+            Double sampleValue = sampleValues.get(j);
+            addRoundValue(itemsets.get(samplingTasks.get(j)[1]), sampleValue == null ? Double.NaN : sampleValue);
+        }
     }
 
     /**
-     * This assigns the labels of the {@link Item}s for each {@link DataPoint} randomly.
+     * Creates a view of the given {@link DataPoint} in which the labels of the {@link Item}s are shuffled.
+     *
+     * @param dataPoint The {@link DataPoint} to be shuffled.
+     * @param random    The source of randomness.
+     * @return The {@link DataPoint} with shuffled labels.
      */
-    private void randomizeDataPoints() {
-        logger.debug("randomizing data points");
-        for (DataPoint<LabelType> dataPoint : dataPoints) {
-            logger.trace("shuffling data point {}", dataPoint);
-            List<LabelType> shuffledItems = dataPoint.getItems().stream()
-                                                     .map(Item::getLabel)
-                                                     .collect(Collectors.toList());
-            Collections.shuffle(shuffledItems);
-            ListIterator<LabelType> itemListIterator = shuffledItems.listIterator();
-            for (Item<LabelType> item : dataPoint.getItems()) {
-                LabelType newLabel = itemListIterator.next();
-                item.setLabel(newLabel);
-                itemListIterator.remove();
+    private DataPoint<LabelType> permute(DataPoint<LabelType> dataPoint, SplittableRandom random) {
+        logger.trace("shuffling data point {}", dataPoint);
+        int[] permutation = new int[dataPoint.getItems().size()];
+        for (int i = 0; i < permutation.length; i++) {
+            permutation[i] = i;
+        }
+        // Fisher-Yates shuffle
+        for (int i = permutation.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return dataPoint.getPermutedView(permutation);
+    }
+
+    /**
+     * Samples the value of the given {@link Itemset} in the randomized {@link DataPoint}s of a round.
+     *
+     * @param itemset     The {@link Itemset} to be sampled.
+     * @param permutation The mapping of supporting {@link DataPoint}s to their views with permuted labels.
+     * @return The sample value or null if the {@link Itemset} could not be observed.
+     */
+    private Double sampleItemset(Itemset<LabelType> itemset, Function<DataPoint<LabelType>, DataPoint<LabelType>> permutation) {
+
+        // create shallow copy background itemset
+        Itemset<LabelType> backgroundItemset = new Itemset<>(itemset.getItems());
+        List<Itemset<LabelType>> allCandidates = new ArrayList<>();
+        int observationCount = 0;
+        // only data points containing all labels of the itemset are visited
+        for (DataPoint<LabelType> supportingDataPoint : dataPointLabelIndex.selectDataPoints(itemset.getItems())) {
+            // positions are not affected by the permutation, hence distances of the original data point apply
+            SquaredDistances squaredDistances = obtainSquaredDistances(supportingDataPoint);
+            DataPoint<LabelType> dataPoint = permutation.apply(supportingDataPoint);
+            // create candidates for current itemset
+            VertexCandidateGenerator<LabelType> candidateGenerator = new VertexCandidateGenerator<>(backgroundItemset, dataPoint, squaredDistances, vertexOne);
+            if (extractionMetricType == CohesionMetric.class) {
+                // find candidate with minimal squared extent
+                Optional<ItemsetObservation<LabelType>> bestCandidate = candidateGenerator.findMinimalExtentObservation();
+                if (bestCandidate.isPresent()) {
+                    if (distributionMetricType == CohesionMetric.class) {
+                        // store extent for background probability distribution
+                        backgroundItemset.setCohesion(backgroundItemset.getCohesion() + bestCandidate.get().getSquaredExtent());
+                        observationCount++;
+                    } else {
+                        // structural motifs are only required for alignment-based metrics
+                        allCandidates.add(bestCandidate.get().toItemset());
+                    }
+                }
+                // TODO implement support for adherence metric here
             }
         }
+        // calculate consensus if wanted
+        if (distributionMetricType == ConsensusMetric.class) {
+            if (!allCandidates.isEmpty()) {
+                List<StructuralMotif> structuralMotifs = allCandidates.stream()
+                                                                      .map(Itemset::getStructuralMotif)
+                                                                      .filter(Optional::isPresent)
+                                                                      .map(Optional::get)
+                                                                      .collect(Collectors.toList());
+                // perform consensus alignment with backbone atoms only
+                ConsensusAlignment consensusAlignment = ConsensusBuilder.create()
+                                                                        .inputStructuralMotifs(structuralMotifs)
+                                                                        .atomFilter(AtomFilter.isBackbone())
+                                                                        .clusterCutoff(clusterCutoff)
+                                                                        .alignWithinClusters(false)
+                                                                        .idealSuperimposition(false)
+                                                                        .run();
+                backgroundItemset.setConsensus(consensusAlignment.getNormalizedConsensusScore());
+                return backgroundItemset.getConsensus();
+            }
+        } else if (distributionMetricType == AffinityMetric.class) {
+            if (!allCandidates.isEmpty()) {
+                List<StructuralMotif> structuralMotifs = allCandidates.stream()
+                                                                      .map(Itemset::getStructuralMotif)
+                                                                      .filter(Optional::isPresent)
+                                                                      .map(Optional::get)
+                                                                      .collect(Collectors.toList());
+                // perform affinity alignment with backbone atoms only
+                AffinityAlignment affinityAlignment = AffinityAlignment.create()
+                                                                       .inputStructuralMotifs(structuralMotifs)
+                                                                       .atomFilter(AtomFilter.isBackbone())
+                                                                       .alignWithinClusters(false)
+                                                                       .idealSuperimposition(false)
+                                                                       .run();
+                backgroundItemset.setAffinity(AffinityMetric.calculateAffinity(affinityAlignment));
+                return backgroundItemset.getAffinity();
+            }
+        }
+        // normalize and store cohesion value
+        if (distributionMetricType == CohesionMetric.class) {
+            // normalize cohesion value
+            backgroundItemset.setCohesion(Math.sqrt(backgroundItemset.getCohesion() / observationCount));
+            return backgroundItemset.getCohesion();
+        }
+        return null;
     }
 
     /**
-     * Increments the observation count of the given Itemset.
+     * Determines a hash of all inputs that affect the sample values, i.e. the {@link DataPoint}s with the labels and positions of their
+     * {@link Item}s, the extraction settings, the sampled {@link DistributionMetric} and the seed. {@link Itemset}s are not part of the hash.
      *
-     * @param itemset The {@link Itemset} for which the count should be incremented.
+     * @return The hexadecimal SHA-256 hash.
      */
-    private synchronized void incrementObservationCount(Itemset<LabelType> itemset) {
-        if (itemsetObservationCounts.containsKey(itemset)) {
-            itemsetObservationCounts.put(itemset, itemsetObservationCounts.get(itemset) + 1);
-        } else {
-            itemsetObservationCounts.put(itemset, 1);
+    String getContentHash() {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new DistributionSamplerException("failed to determine content hash", e);
+        }
+        updateDigest(messageDigest, distributionMetricType.getName());
+        updateDigest(messageDigest, extractionMetricType.getName());
+        updateDigest(messageDigest, String.valueOf(vertexOne));
+        updateDigest(messageDigest, String.valueOf(representationSchemeType));
+        updateDigest(messageDigest, Double.toString(clusterCutoff));
+        updateDigest(messageDigest, Long.toString(seed));
+        for (DataPoint<LabelType> dataPoint : dataPoints) {
+            updateDigest(messageDigest, dataPoint.getDataPointIdentifier().toString());
+            for (Item<LabelType> item : dataPoint.getItems()) {
+                updateDigest(messageDigest, item.getLabel().toString());
+                Optional<Vector3D> position = representationSchemeType != null ? item.getPosition(representationSchemeType) : item.getPosition();
+                updateDigest(messageDigest, position.map(vector -> vector.getX() + "," + vector.getY() + "," + vector.getZ()).orElse("-"));
+            }
         }
+        StringBuilder contentHash = new StringBuilder();
+        for (byte hashByte : messageDigest.digest()) {
+            contentHash.append(String.format("%02x", hashByte));
+        }
+        return contentHash.toString();
     }
 
-    private List<List<Itemset<LabelType>>> partition(List<Itemset<LabelType>> itemsets, int k) {
+    private static void updateDigest(MessageDigest messageDigest, String value) {
+        messageDigest.update(value.getBytes(StandardCharsets.UTF_8));
+        // separate values such that concatenations are unambiguous
+        messageDigest.update((byte) 0);
+    }
 
-        List<List<Itemset<LabelType>>> partitions = new ArrayList<>();
-        // init partitions
-        for (int i = 0; i < k; i++) {
-            partitions.add(new ArrayList<>(itemsets.size() / k + 1));
-        }
+    /**
+     * The growable storage of the sample values of an {@link Itemset} per round.
+     */
+    private static class RoundValues {
 
-        // distribute objects fairly among all partitions
-        for (int i = 0; i < itemsets.size(); i++) {
-            partitions.get(i % k).add(itemsets.get(i));
-        }
+        private double[] values = new double[16];
+        private int count;
 
-        return partitions;
+        private void add(double value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * values.length);
+            }
+            values[count++] = value;
+        }
     }
 
-    private class DistributionCalculator implements Callable<Void> {
+    /**
+     * The views with randomly permuted labels of a single round. Views are created on first access for each {@link DataPoint} and shared by all
+     * {@link Itemset}s sampled in this round. The permutation of each {@link DataPoint} is determined by its own seed, hence views do not depend
+     * on the order of access.
+     */
+    private class RoundPermutation implements Function<DataPoint<LabelType>, DataPoint<LabelType>> {
 
-        private List<Itemset<LabelType>> itemsets;
+        private final long[] dataPointSeeds;
+        private final Map<DataPoint<LabelType>, DataPoint<LabelType>> permutedDataPoints;
 
-        private DistributionCalculator(List<Itemset<LabelType>> itemsets) {
-            this.itemsets = itemsets;
+        private RoundPermutation(long roundSeed) {
+            dataPointSeeds = new SplittableRandom(roundSeed).longs(dataPoints.size()).toArray();
+            // data points are compared by identity
+            permutedDataPoints = new ConcurrentHashMap<>();
         }
 
         @Override
-        public Void call() {
-
-            for (Itemset<LabelType> itemset : itemsets) {
-
-                // create shallow copy background itemset
-                Itemset<LabelType> backgroundItemset = new Itemset<>(itemset.getItems());
-                List<Itemset<LabelType>> allCandidates = new ArrayList<>();
-                for (DataPoint<LabelType> dataPoint : dataPoints) {
-                    // create candidates for current itemset
-                    VertexCandidateGenerator<LabelType> candidateGenerator = new VertexCandidateGenerator<>(backgroundItemset, dataPoint, obtainSquaredDistanceMatrix(dataPoint), vertexOne);
-                    List<Itemset<LabelType>> candidates = candidateGenerator.generateCandidates();
-                    if (!candidates.isEmpty()) {
-                        if (extractionMetricType == CohesionMetric.class) {
-                            // find and store candidate with minimal squared extent
-                            Itemset<LabelType> bestCandidate = candidates.stream()
-                                                                         .min((Comparator.comparingDouble(Itemsets::calculateMaximalSquaredExtent)))
-                                                                         .orElseThrow(() -> new DistributionSamplerException("failed to get candidate with minimal extent"));
-                            // calculate squared extent of best candidate
-                            double bestCandidateSquaredExtent = Itemsets.calculateMaximalSquaredExtent(bestCandidate);
-
-                            if (distributionMetricType == CohesionMetric.class) {
-                                // store extent for background probability distribution
-                                backgroundItemset.setCohesion(backgroundItemset.getCohesion() + bestCandidateSquaredExtent);
-                                incrementObservationCount(itemset);
-                            }
-                            allCandidates.add(bestCandidate);
-                        }
-                        // TODO implement support for adherence metric here
-                    }
-                }
-                // calculate consensus if wanted
-                if (distributionMetricType == ConsensusMetric.class) {
-                    if (!allCandidates.isEmpty()) {
-                        List<StructuralMotif> structuralMotifs = allCandidates.stream()
-                                                                              .map(Itemset::getStructuralMotif)
-                                                                              .filter(Optional::isPresent)
-                                                                              .map(Optional::get)
-                                                                              .collect(Collectors.toList());
-                        // perform consensus alignment with backbone atoms only
-                        ConsensusAlignment consensusAlignment = ConsensusBuilder.create()
-                                                                                .inputStructuralMotifs(structuralMotifs)
-                                                                                .atomFilter(AtomFilter.isBackbone())
-                                                                                .clusterCutoff(clusterCutoff)
-                                                                                .alignWithinClusters(false)
-                                                                                .idealSuperimposition(false)
-                                                                                .run();
-                        backgroundItemset.setConsensus(consensusAlignment.getNormalizedConsensusScore());
-                        addSampleValueForItemset(itemset, backgroundItemset.getConsensus());
-                    }
-                } else if (distributionMetricType == AffinityMetric.class) {
-                    if (!allCandidates.isEmpty()) {
-                        List<StructuralMotif> structuralMotifs = allCandidates.stream()
-                                                                              .map(Itemset::getStructuralMotif)
-                                                                              .filter(Optional::isPresent)
-                                                                              .map(Optional::get)
-                                                                              .collect(Collectors.toList());
-                        // perform affinity alignment with backbone atoms only
-                        AffinityAlignment affinityAlignment = AffinityAlignment.create()
-                                                                               .inputStructuralMotifs(structuralMotifs)
-                                                                               .atomFilter(AtomFilter.isBackbone())
-                                                                               .alignWithinClusters(false)
-                                                                               .idealSuperimposition(false)
-                                                                               .run();
-                        backgroundItemset.setAffinity(AffinityMetric.calculateAffinity(affinityAlignment));
-                        addSampleValueForItemset(itemset, backgroundItemset.getAffinity());
-                    }
-                }
-                // normalize and store cohesion value
-                if (distributionMetricType == CohesionMetric.class) {
-                    // normalize cohesion value
-                    backgroundItemset.setCohesion(Math.sqrt(backgroundItemset.getCohesion() / itemsetObservationCounts.get(backgroundItemset)));
-                    addSampleValueForItemset(itemset, backgroundItemset.getCohesion());
-                }
-            }
-            return null;
+        public DataPoint<LabelType> apply(DataPoint<LabelType> dataPoint) {
+            return permutedDataPoints.computeIfAbsent(dataPoint, key -> permute(key, new SplittableRandom(dataPointSeeds[dataPointIndices.get(key)])));
         }
     }
-}
\ No newline at end of file
+}
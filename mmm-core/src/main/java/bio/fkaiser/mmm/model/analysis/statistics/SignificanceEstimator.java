@@ -9,17 +9,31 @@ import bio.fkaiser.mmm.model.metrics.ConsensusMetric;
 import bio.fkaiser.mmm.model.metrics.DistributionMetric;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import org.apache.commons.math3.distribution.NormalDistribution;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.inference.TestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
 /**
  * Uses the {@link DistributionSampler} to estimate the significance of found {@link Itemset}s regarding a defined {@link DistributionMetric}.
  * Currently supported are {@link CohesionMetric} and {@link ConsensusMetric}.
+ * <p>
+ * In sequential mode background rounds are drawn in batches. After each batch the decision for every {@link Itemset} is re-checked and it is
+ * retired from sampling once the confidence interval of its standardized score lies entirely on one side of the significance cutoff, such
+ * that further rounds are only spent on borderline {@link Itemset}s.
+ * <p>
+ * If a limit of significant {@link Itemset}s or an evaluation budget is given, {@link Itemset}s are evaluated lazily in the order of their
+ * ranking. Evaluation stops once the desired number of significant {@link Itemset}s is found or the budget is exhausted, and all remaining
+ * {@link Itemset}s are left unscored.
  *
  * @author fk
  */
@@ -32,6 +46,11 @@ public class SignificanceEstimator<LabelType extends Comparable<LabelType>> {
     private final SignificanceEstimatorType type;
     private final double ksCutoff;
     private final double significanceCutoff;
+    private final int sequentialBatchSize;
+    private final int topK;
+    private final int evaluationBudget;
+    private final double criticalScore;
+    private final double confidenceQuantile;
     private final TreeMap<Significance, Itemset<LabelType>> significantItemsets;
     private Map<Itemset<LabelType>, Distribution> backgroundDistributions;
 
@@ -40,64 +59,192 @@ public class SignificanceEstimator<LabelType extends Comparable<LabelType>> {
         type = configuration.getSignificanceType();
         ksCutoff = configuration.getKsCutoff();
         significanceCutoff = configuration.getSignificanceCutoff();
+        sequentialBatchSize = configuration.getSequentialBatchSize();
+        topK = configuration.getTopK();
+        evaluationBudget = configuration.getEvaluationBudget();
+        // an itemset is significant if its standardized score is below the critical score
+        NormalDistribution standardNormalDistribution = new NormalDistribution(0.0, 1.0);
+        criticalScore = standardNormalDistribution.inverseCumulativeProbability(significanceCutoff);
+        confidenceQuantile = standardNormalDistribution.inverseCumulativeProbability(0.5 + configuration.getSequentialConfidence() / 2.0);
         significantItemsets = new TreeMap<>();
-        sampleDistributions(configuration.getLevelOfParallelism(), configuration.getSampleSize());
+        sampleDistributions(configuration.getSampleSize(), configuration.getSeed(), configuration.getCacheLocation());
     }
 
     /**
-     * Samples background distributions with the given level of parallelism.
+     * Samples background distributions using the {@link bio.fkaiser.mmm.MiningExecutor} of the mining run and determines the significance of
+     * the {@link Itemset}s in the order of their ranking.
      *
-     * @param levelOfParallelism The desired level of parallelism.
-     * @param sampleSize         The desired sample size.
+     * @param sampleSize    The desired sample size. In sequential mode this is the maximal number of rounds per {@link Itemset}.
+     * @param seed          The seed of the label permutations.
+     * @param cacheLocation The directory of the {@link BackgroundDistributionCache}, null if no cache should be used.
      */
-    private void sampleDistributions(int levelOfParallelism, int sampleSize) {
-        DistributionSampler<LabelType> distributionSampler = new DistributionSampler<>(itemsetMiner, type.getDistributionMetric(), levelOfParallelism, sampleSize);
+    private void sampleDistributions(int sampleSize, long seed, String cacheLocation) {
+        DistributionSampler<LabelType> distributionSampler = new DistributionSampler<>(itemsetMiner, type.getDistributionMetric(), seed);
         backgroundDistributions = distributionSampler.getBackgroundDistributions();
-        backgroundDistributions.keySet().forEach(this::determineSignificance);
+        // total itemsets are sorted according to the ranking of the run
+        List<Itemset<LabelType>> rankedItemsets = itemsetMiner.getTotalItemsets();
+
+        // reuse cached samples of previous runs on the same data
+        BackgroundDistributionCache<LabelType> backgroundDistributionCache = null;
+        if (cacheLocation != null) {
+            backgroundDistributionCache = new BackgroundDistributionCache<>(Paths.get(cacheLocation), distributionSampler.getContentHash());
+            backgroundDistributionCache.restore(distributionSampler, rankedItemsets, sampleSize);
+        }
+
+        int evaluatedItemsets = evaluateInRankedOrder(rankedItemsets, topK, evaluationBudget,
+                                                      chunk -> sampleItemsets(distributionSampler, chunk, sampleSize),
+                                                      rank -> backgroundDistributions.containsKey(rankedItemsets.get(rank))
+                                                              && determineSignificance(rankedItemsets.get(rank), rank));
+        if (evaluatedItemsets < rankedItemsets.size()) {
+            logger.info("evaluated {} of {} itemsets, remaining itemsets are left unscored", evaluatedItemsets, rankedItemsets.size());
+        }
+
+        if (backgroundDistributionCache != null) {
+            backgroundDistributionCache.store(distributionSampler, rankedItemsets);
+        }
+    }
+
+    /**
+     * Evaluates the given {@link Itemset}s in the order of their ranking. The {@link Itemset}s are sampled in chunks of the desired number of
+     * significant {@link Itemset}s and evaluation stops once this number is reached or the evaluation budget is exhausted.
+     *
+     * @param rankedItemsets   The ranked {@link Itemset}s.
+     * @param topK             The desired number of significant {@link Itemset}s or -1 to evaluate all.
+     * @param evaluationBudget The maximal number of evaluated {@link Itemset}s or -1 to evaluate all.
+     * @param chunkSampler     Samples the background distributions of a chunk of {@link Itemset}s.
+     * @param significanceTest Tests the {@link Itemset} of the given rank for significance.
+     * @return The number of evaluated {@link Itemset}s.
+     */
+    static <ItemsetType> int evaluateInRankedOrder(List<ItemsetType> rankedItemsets, int topK, int evaluationBudget,
+                                                   Consumer<List<ItemsetType>> chunkSampler, IntPredicate significanceTest) {
+        // without limits all itemsets are evaluated at once
+        int evaluationLimit = evaluationBudget == -1 ? rankedItemsets.size() : Math.min(evaluationBudget, rankedItemsets.size());
+        int chunkSize = topK == -1 ? evaluationLimit : topK;
+        int evaluatedItemsets = 0;
+        int significantItemsetCount = 0;
+        while (evaluatedItemsets < evaluationLimit && (topK == -1 || significantItemsetCount < topK)) {
+            List<ItemsetType> chunk = rankedItemsets.subList(evaluatedItemsets, Math.min(evaluatedItemsets + chunkSize, evaluationLimit));
+            chunkSampler.accept(chunk);
+            for (int i = 0; i < chunk.size() && (topK == -1 || significantItemsetCount < topK); i++) {
+                if (significanceTest.test(evaluatedItemsets++)) {
+                    significantItemsetCount++;
+                }
+            }
+        }
+        return evaluatedItemsets;
+    }
+
+    /**
+     * Samples the background distributions of the given {@link Itemset}s, in sequential mode only until their decision is stable.
+     *
+     * @param distributionSampler The {@link DistributionSampler} to be used.
+     * @param itemsets            The {@link Itemset}s to be sampled.
+     * @param sampleSize          The desired sample size.
+     */
+    private void sampleItemsets(DistributionSampler<LabelType> distributionSampler, List<Itemset<LabelType>> itemsets, int sampleSize) {
+        sampleSequentially(itemsets, sampleSize, sequentialBatchSize, distributionSampler::sampleUpTo,
+                           itemset -> isDecisionStable(getObservedValue(itemset), backgroundDistributions.get(itemset), criticalScore,
+                                                       confidenceQuantile));
+    }
+
+    /**
+     * Samples the given {@link Itemset}s up to the given number of rounds. In sequential mode rounds are drawn in batches and {@link Itemset}s
+     * are retired from sampling once their decision is stable, otherwise all rounds are drawn at once.
+     *
+     * @param itemsets            The {@link Itemset}s to be sampled.
+     * @param sampleSize          The desired sample size.
+     * @param sequentialBatchSize The number of rounds per batch or -1 to draw all rounds at once.
+     * @param roundSampler        Samples the given {@link Itemset}s up to the given number of rounds.
+     * @param decisionTest        Tests whether the decision for an {@link Itemset} is stable.
+     */
+    static <ItemsetType> void sampleSequentially(List<ItemsetType> itemsets, int sampleSize, int sequentialBatchSize,
+                                                 BiConsumer<List<ItemsetType>, Integer> roundSampler, Predicate<ItemsetType> decisionTest) {
+        List<ItemsetType> activeItemsets = new ArrayList<>(itemsets);
+        if (sequentialBatchSize == -1) {
+            roundSampler.accept(activeItemsets, sampleSize);
+            return;
+        }
+        // sample in batches and retire itemsets once their decision is stable
+        int sampledRounds = 0;
+        while (sampledRounds < sampleSize && !activeItemsets.isEmpty()) {
+            int roundCount = Math.min(sequentialBatchSize, sampleSize - sampledRounds);
+            sampledRounds += roundCount;
+            roundSampler.accept(activeItemsets, sampledRounds);
+            activeItemsets.removeIf(decisionTest);
+            logger.info("{} of {} rounds sampled, {} itemsets remain undecided", sampledRounds, sampleSize, activeItemsets.size());
+        }
+    }
+
+    /**
+     * Checks whether the decision for an observed value is stable. The standard error of the standardized score z of the observed value is
+     * approximated by sqrt((1 + z^2 / 2) / n) for n background observations, which accounts for the uncertainty of both mean and standard
+     * deviation.
+     *
+     * @param observedValue          The observed value of the {@link Itemset}.
+     * @param backgroundDistribution The background {@link Distribution} sampled so far, may be null.
+     * @param criticalScore          The standardized score of the significance cutoff.
+     * @param confidenceQuantile     The standard normal quantile of the desired confidence.
+     * @return True if the confidence interval of the standardized score does not contain the critical score.
+     */
+    static boolean isDecisionStable(double observedValue, Distribution backgroundDistribution, double criticalScore, double confidenceQuantile) {
+        if (backgroundDistribution == null) {
+            return false;
+        }
+        double standardDeviation = backgroundDistribution.getStandardDeviation();
+        if (!(standardDeviation > 0.0)) {
+            return false;
+        }
+        double score = (observedValue - backgroundDistribution.getMean()) / standardDeviation;
+        double standardError = Math.sqrt((1.0 + score * score / 2.0) / backgroundDistribution.getObservationCount());
+        return Math.abs(score - criticalScore) > confidenceQuantile * standardError;
+    }
+
+    private double getObservedValue(Itemset<LabelType> itemset) {
+        if (type == SignificanceEstimatorType.COHESION) {
+            return itemset.getCohesion();
+        } else if (type == SignificanceEstimatorType.CONSENSUS) {
+            return itemset.getConsensus();
+        } else if (type == SignificanceEstimatorType.AFFINITY) {
+            return itemset.getAffinity();
+        }
+        return Double.NaN;
     }
 
     /**
      * Determines the significance for the given {@link Itemset} by modeling the background normal distribution.
      *
      * @param itemset The {@link Itemset} for which the significance should be calculated.
+     * @param rank    The rank of the {@link Itemset}.
+     * @return True if the {@link Itemset} is significant.
      */
-    private void determineSignificance(Itemset<LabelType> itemset) {
+    private boolean determineSignificance(Itemset<LabelType> itemset, int rank) {
 
-        double[] values = backgroundDistributions.get(itemset).getObservations().stream()
-                                                 .mapToDouble(Double::doubleValue).toArray();
+        Distribution backgroundDistribution = backgroundDistributions.get(itemset);
+        double[] values = backgroundDistribution.getObservations();
 
         // model normal distribution
-        DescriptiveStatistics descriptiveStatistics = new DescriptiveStatistics(values);
-        double mean = descriptiveStatistics.getMean();
-        double standardDeviation = descriptiveStatistics.getStandardDeviation();
-        NormalDistribution normalDistribution = new NormalDistribution(mean, standardDeviation);
+        NormalDistribution normalDistribution = new NormalDistribution(backgroundDistribution.getMean(), backgroundDistribution.getStandardDeviation());
 
         // calculate KS p-value to estimate quality of fit
         double ks = TestUtils.kolmogorovSmirnovTest(normalDistribution, values, false);
         if (ks < ksCutoff) {
             logger.warn("itemset {} background distribution of type {} violates KS-cutoff, skipping", itemset, type);
-            return;
+            return false;
         }
 
-        double pValue = Double.NaN;
-        if (type == SignificanceEstimatorType.COHESION) {
-            pValue = normalDistribution.cumulativeProbability(itemset.getCohesion());
-        } else if (type == SignificanceEstimatorType.CONSENSUS) {
-            pValue = normalDistribution.cumulativeProbability(itemset.getConsensus());
-        } else if (type == SignificanceEstimatorType.AFFINITY) {
-            pValue = normalDistribution.cumulativeProbability(itemset.getAffinity());
-        }
+        double pValue = normalDistribution.cumulativeProbability(getObservedValue(itemset));
 
         logger.debug("p-value for itemset {} is {}", itemset.toSimpleString(), pValue);
         if (pValue < significanceCutoff) {
-            Significance significance = new Significance(pValue, ks);
+            Significance significance = new Significance(pValue, ks, rank);
             significantItemsets.put(significance, itemset);
             itemset.setpValue(pValue);
             itemset.setKs(ks);
             logger.info("itemset {} is significant with {}", itemset.toSimpleString(), significance);
-        } else {
-            logger.info("itemset {} is insignificant", itemset.toSimpleString());
+            return true;
         }
+        logger.info("itemset {} is insignificant", itemset.toSimpleString());
+        return false;
     }
 
     public TreeMap<Significance, Itemset<LabelType>> getSignificantItemsets() {
@@ -105,16 +252,19 @@ public class SignificanceEstimator<LabelType extends Comparable<LabelType>> {
     }
 
     /**
-     * A data object to hold statistical measures, that is the p-value and the Kolmogorov-Smirnov value.
+     * A data object to hold statistical measures, that is the p-value and the Kolmogorov-Smirnov value. Equal p-values are ordered by the
+     * Kolmogorov-Smirnov value and then by the rank of the {@link Itemset}, such that every significant {@link Itemset} has a distinct key.
      */
     public static class Significance implements Comparable<Significance> {
 
         private final double pvalue;
         private final double ks;
+        private final int rank;
 
-        public Significance(double pvalue, double ks) {
+        public Significance(double pvalue, double ks, int rank) {
             this.pvalue = pvalue;
             this.ks = ks;
+            this.rank = rank;
         }
 
         @Override public String toString() {
@@ -125,7 +275,16 @@ public class SignificanceEstimator<LabelType extends Comparable<LabelType>> {
         }
 
         @Override public int compareTo(Significance o) {
-            return Double.compare(pvalue, o.pvalue);
+            int comparison = Double.compare(pvalue, o.pvalue);
+            if (comparison != 0) {
+                return comparison;
+            }
+            // better fitting background distributions first
+            comparison = Double.compare(o.ks, ks);
+            if (comparison != 0) {
+                return comparison;
+            }
+            return Integer.compare(rank, o.rank);
         }
 
         public double getKs() {
@@ -135,5 +294,9 @@ public class SignificanceEstimator<LabelType extends Comparable<LabelType>> {
         public double getPvalue() {
             return pvalue;
         }
+
+        public int getRank() {
+            return rank;
+        }
     }
 }
@@ -35,6 +35,10 @@ public class ItemsetMinerConfiguration<LabelType extends Comparable<LabelType>>
 
     private static final ItemsetComparatorType DEFAULT_ITEMSET_COMPARATOR = ItemsetComparatorType.SUPPORT;
     private static final int DEFAULT_MAXIMAL_EPOCHS = -1;
+    private static final int DEFAULT_DISTANCE_MATRIX_CACHE_SIZE = -1;
+    private static final int DEFAULT_SPATIAL_INDEX_THRESHOLD = -1;
+    private static final int DEFAULT_LEVEL_OF_PARALLELISM = -1;
+    private static final int DEFAULT_DISTRIBUTION_CAPACITY = -1;
 
     @JsonProperty("creation-user")
     private String creationUser;
@@ -68,6 +72,26 @@ public class ItemsetMinerConfiguration<LabelType extends Comparable<LabelType>>
     private ItemsetComparatorType itemsetComparatorType = DEFAULT_ITEMSET_COMPARATOR;
     @JsonProperty("maximal-epochs")
     private int maximalEpochs = DEFAULT_MAXIMAL_EPOCHS;
+    /**
+     * the maximal size of cached distance matrices in megabytes, -1 if unbounded
+     */
+    @JsonProperty("distance-matrix-cache-size")
+    private int distanceMatrixCacheSize = DEFAULT_DISTANCE_MATRIX_CACHE_SIZE;
+    /**
+     * the number of items of a data point above which a spatial index is used instead of a distance matrix, -1 if never
+     */
+    @JsonProperty("spatial-index-threshold")
+    private int spatialIndexThreshold = DEFAULT_SPATIAL_INDEX_THRESHOLD;
+    /**
+     * the number of worker threads shared by all metrics, -1 to use all available processors
+     */
+    @JsonProperty("level-of-parallelism")
+    private int levelOfParallelism = DEFAULT_LEVEL_OF_PARALLELISM;
+    /**
+     * the maximal number of observations stored per itemset distribution, -1 if unbounded
+     */
+    @JsonProperty("distribution-capacity")
+    private int distributionCapacity = DEFAULT_DISTRIBUTION_CAPACITY;
     @JsonProperty("significance-estimator-configuration")
     private SignificanceEstimatorConfiguration significanceEstimatorConfiguration;
     public ItemsetMinerConfiguration() {
@@ -202,6 +226,38 @@ public class ItemsetMinerConfiguration<LabelType extends Comparable<LabelType>>
         this.maximalEpochs = maximalEpochs;
     }
 
+    public int getDistanceMatrixCacheSize() {
+        return distanceMatrixCacheSize;
+    }
+
+    public void setDistanceMatrixCacheSize(int distanceMatrixCacheSize) {
+        this.distanceMatrixCacheSize = distanceMatrixCacheSize;
+    }
+
+    public int getSpatialIndexThreshold() {
+        return spatialIndexThreshold;
+    }
+
+    public void setSpatialIndexThreshold(int spatialIndexThreshold) {
+        this.spatialIndexThreshold = spatialIndexThreshold;
+    }
+
+    public int getLevelOfParallelism() {
+        return levelOfParallelism;
+    }
+
+    public void setLevelOfParallelism(int levelOfParallelism) {
+        this.levelOfParallelism = levelOfParallelism;
+    }
+
+    public int getDistributionCapacity() {
+        return distributionCapacity;
+    }
+
+    public void setDistributionCapacity(int distributionCapacity) {
+        this.distributionCapacity = distributionCapacity;
+    }
+
     public String getOutputLocation() {
         return outputLocation;
     }
@@ -1,6 +1,7 @@
 package bio.fkaiser.mmm.model.configurations.analysis.statistics;
 
 import bio.fkaiser.mmm.model.analysis.statistics.SignificanceEstimatorType;
+import bio.fkaiser.mmm.model.configurations.ItemsetMinerConfiguration;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -12,6 +13,11 @@ public class SignificanceEstimatorConfiguration {
     private static final int DEFAULT_SAMPLE_SIZE = 30;
     private static final double DEFAULT_SIGNIFICANCE_CUTOFF = 1E-3;
     private static final double DEFAULT_KS_CUTOFF = 0.1;
+    private static final long DEFAULT_SEED = 42L;
+    private static final int DEFAULT_SEQUENTIAL_BATCH_SIZE = -1;
+    private static final double DEFAULT_SEQUENTIAL_CONFIDENCE = 0.99;
+    private static final int DEFAULT_TOP_K = -1;
+    private static final int DEFAULT_EVALUATION_BUDGET = -1;
 
     @JsonProperty("significance-type")
     private SignificanceEstimatorType significanceType;
@@ -23,6 +29,36 @@ public class SignificanceEstimatorConfiguration {
     private int levelOfParallelism = DEFAULT_LEVEL_OF_PARALLELISM;
     @JsonProperty("sample-size")
     private int sampleSize = DEFAULT_SAMPLE_SIZE;
+    /**
+     * the seed from which the label permutations of all sampling rounds are derived
+     */
+    @JsonProperty("seed")
+    private long seed = DEFAULT_SEED;
+    /**
+     * the number of rounds after which decisions are re-checked in sequential mode, -1 to always draw all rounds
+     */
+    @JsonProperty("sequential-batch-size")
+    private int sequentialBatchSize = DEFAULT_SEQUENTIAL_BATCH_SIZE;
+    /**
+     * the confidence that is required to retire an itemset in sequential mode
+     */
+    @JsonProperty("sequential-confidence")
+    private double sequentialConfidence = DEFAULT_SEQUENTIAL_CONFIDENCE;
+    /**
+     * the directory of the persistent cache of background distributions, null if no cache should be used
+     */
+    @JsonProperty("cache-location")
+    private String cacheLocation;
+    /**
+     * the number of significant itemsets after which evaluation in ranked order stops, -1 to evaluate all itemsets
+     */
+    @JsonProperty("top-k")
+    private int topK = DEFAULT_TOP_K;
+    /**
+     * the maximal number of itemsets evaluated in ranked order, -1 if unbounded
+     */
+    @JsonProperty("evaluation-budget")
+    private int evaluationBudget = DEFAULT_EVALUATION_BUDGET;
 
     public double getKsCutoff() {
         return ksCutoff;
@@ -32,10 +68,20 @@ public class SignificanceEstimatorConfiguration {
         this.ksCutoff = ksCutoff;
     }
 
+    /**
+     * @return The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public int getLevelOfParallelism() {
         return levelOfParallelism;
     }
 
+    /**
+     * @param levelOfParallelism The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public void setLevelOfParallelism(int levelOfParallelism) {
         this.levelOfParallelism = levelOfParallelism;
     }
@@ -48,6 +94,54 @@ public class SignificanceEstimatorConfiguration {
         this.sampleSize = sampleSize;
     }
 
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getSequentialBatchSize() {
+        return sequentialBatchSize;
+    }
+
+    public void setSequentialBatchSize(int sequentialBatchSize) {
+        this.sequentialBatchSize = sequentialBatchSize;
+    }
+
+    public double getSequentialConfidence() {
+        return sequentialConfidence;
+    }
+
+    public void setSequentialConfidence(double sequentialConfidence) {
+        this.sequentialConfidence = sequentialConfidence;
+    }
+
+    public String getCacheLocation() {
+        return cacheLocation;
+    }
+
+    public void setCacheLocation(String cacheLocation) {
+        this.cacheLocation = cacheLocation;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public int getEvaluationBudget() {
+        return evaluationBudget;
+    }
+
+    public void setEvaluationBudget(int evaluationBudget) {
+        this.evaluationBudget = evaluationBudget;
+    }
+
     public double getSignificanceCutoff() {
         return significanceCutoff;
     }
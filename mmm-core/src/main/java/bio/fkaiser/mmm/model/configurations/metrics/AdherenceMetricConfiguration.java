@@ -1,6 +1,7 @@
 package bio.fkaiser.mmm.model.configurations.metrics;
 
 import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.configurations.ItemsetMinerConfiguration;
 import bio.fkaiser.mmm.model.configurations.Jsonizable;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
@@ -67,10 +68,20 @@ public class AdherenceMetricConfiguration<LabelType extends Comparable<LabelType
         this.representationSchemeType = representationSchemeType;
     }
 
+    /**
+     * @return The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public int getLevelOfParallelism() {
         return levelOfParallelism;
     }
 
+    /**
+     * @param levelOfParallelism The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public void setLevelOfParallelism(int levelOfParallelism) {
         this.levelOfParallelism = levelOfParallelism;
     }
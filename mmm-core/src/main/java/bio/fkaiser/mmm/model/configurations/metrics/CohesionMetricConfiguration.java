@@ -1,5 +1,6 @@
 package bio.fkaiser.mmm.model.configurations.metrics;
 
+import bio.fkaiser.mmm.model.configurations.ItemsetMinerConfiguration;
 import bio.fkaiser.mmm.model.configurations.Jsonizable;
 import bio.fkaiser.mmm.model.metrics.CohesionMetric;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -41,10 +42,20 @@ public class CohesionMetricConfiguration<LabelType extends Comparable<LabelType>
         this.representationSchemeType = representationSchemeType;
     }
 
+    /**
+     * @return The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public int getLevelOfParallelism() {
         return levelOfParallelism;
     }
 
+    /**
+     * @param levelOfParallelism The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public void setLevelOfParallelism(int levelOfParallelism) {
         this.levelOfParallelism = levelOfParallelism;
     }
@@ -1,5 +1,6 @@
 package bio.fkaiser.mmm.model.configurations.metrics;
 
+import bio.fkaiser.mmm.model.configurations.ItemsetMinerConfiguration;
 import bio.fkaiser.mmm.model.configurations.Jsonizable;
 import bio.fkaiser.mmm.model.metrics.ConsensusMetric;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -89,10 +90,20 @@ public class ConsensusMetricConfiguration<LabelType extends Comparable<LabelType
         this.clusterCutoffValue = clusterCutoffValue;
     }
 
+    /**
+     * @return The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public int getLevelOfParallelism() {
         return levelOfParallelism;
     }
 
+    /**
+     * @param levelOfParallelism The level of parallelism.
+     * @deprecated This setting is ignored, all metrics share the level of parallelism of the {@link ItemsetMinerConfiguration}.
+     */
+    @Deprecated
     public void setLevelOfParallelism(int levelOfParallelism) {
         this.levelOfParallelism = levelOfParallelism;
     }
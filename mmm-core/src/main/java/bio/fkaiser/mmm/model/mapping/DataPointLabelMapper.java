@@ -57,6 +57,8 @@ public class DataPointLabelMapper<LabelType extends Comparable<LabelType>> {
                                      .map(Optional::get)
                                      .collect(Collectors.toList());
         }
+        // mapping rules may change labels of the original items in place
+        dataPoint.invalidateLabelIndex();
         return new DataPoint<>(mappedItems, dataPoint.getDataPointIdentifier());
     }
 }
@@ -2,15 +2,14 @@ package bio.fkaiser.mmm.model.metrics;
 
 import bio.fkaiser.mmm.model.DataPoint;
 import bio.fkaiser.mmm.model.DataPointCache;
+import bio.fkaiser.mmm.model.DataPointLabelIndex;
 import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.LabelDictionary;
 import de.bioforscher.singa.structure.algorithms.superimposition.fit3d.representations.RepresentationSchemeType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Abstract {@link ExtractionDependentMetric} that provides common functionality for {@link ExtractionMetric}s.
@@ -23,6 +22,8 @@ public abstract class AbstractExtractionMetric<LabelType extends Comparable<Labe
 
     protected final List<DataPoint<LabelType>> dataPoints;
     Map<Itemset<LabelType>, List<Itemset<LabelType>>> extractedItemsets;
+    private LabelDictionary<LabelType> labelDictionary;
+    private volatile DataPointLabelIndex<LabelType> dataPointLabelIndex;
 
     AbstractExtractionMetric(List<DataPoint<LabelType>> dataPoints, RepresentationSchemeType representationSchemeType) {
         super(representationSchemeType);
@@ -41,14 +42,81 @@ public abstract class AbstractExtractionMetric<LabelType extends Comparable<Labe
 
     protected abstract void filterExtractedItemsets();
 
-    synchronized void addToExtractedItemsets(Itemset<LabelType> itemset, Itemset<LabelType> extractedItemset) {
-        if (extractedItemsets.containsKey(itemset)) {
-            extractedItemsets.get(itemset).add(extractedItemset);
-        } else {
-            List<Itemset<LabelType>> itemsets = new ArrayList<>();
-            itemsets.add(extractedItemset);
-            extractedItemsets.put(itemset, itemsets);
+    /**
+     * Sets the {@link LabelDictionary} of the mining run, which is used by the index of supporting {@link DataPoint}s instead of a private one.
+     *
+     * @param labelDictionary The {@link LabelDictionary} containing all labels of the {@link DataPoint}s.
+     */
+    public void setLabelDictionary(LabelDictionary<LabelType> labelDictionary) {
+        this.labelDictionary = labelDictionary;
+        dataPointLabelIndex = null;
+    }
+
+    /**
+     * Returns the {@link DataPoint}s that contain all labels of the given {@link Itemset}, such that only those have to be visited for
+     * extraction. The underlying {@link DataPointLabelIndex} is built once and reused for all subsequent epochs.
+     *
+     * @param itemset The {@link Itemset} for which supporting {@link DataPoint}s should be determined.
+     * @return The supporting {@link DataPoint}s.
+     */
+    List<DataPoint<LabelType>> getSupportingDataPoints(Itemset<LabelType> itemset) {
+        DataPointLabelIndex<LabelType> currentDataPointLabelIndex = dataPointLabelIndex;
+        if (currentDataPointLabelIndex == null) {
+            // concurrent initialization creates equal indices, hence no locking is required
+            currentDataPointLabelIndex = labelDictionary == null ? new DataPointLabelIndex<>(dataPoints) : new DataPointLabelIndex<>(dataPoints, labelDictionary);
+            dataPointLabelIndex = currentDataPointLabelIndex;
         }
+        return currentDataPointLabelIndex.selectDataPoints(itemset.getItems());
     }
-}
 
+    /**
+     * Decomposes the extraction for the given {@link Itemset}s into {@link ExtractionUnit}s, one for each supporting {@link DataPoint} of each
+     * {@link Itemset}.
+     *
+     * @param itemsets The {@link Itemset}s to be extracted.
+     * @return The {@link ExtractionUnit}s, grouped by {@link Itemset}.
+     */
+    List<ExtractionUnit<LabelType>> createExtractionUnits(Collection<Itemset<LabelType>> itemsets) {
+        List<ExtractionUnit<LabelType>> extractionUnits = new ArrayList<>();
+        for (Itemset<LabelType> itemset : itemsets) {
+            // only data points containing all labels of the itemset are visited
+            for (DataPoint<LabelType> dataPoint : getSupportingDataPoints(itemset)) {
+                extractionUnits.add(new ExtractionUnit<>(itemset, dataPoint));
+            }
+        }
+        return extractionUnits;
+    }
+
+    /**
+     * Stores an extracted {@link Itemset}. This is not thread-safe, hence extracted {@link Itemset}s of parallel tasks have to be collected
+     * first and are stored once all tasks are completed.
+     *
+     * @param itemset          The {@link Itemset} that was extracted.
+     * @param extractedItemset The extracted occurrence of the {@link Itemset}.
+     */
+    void addToExtractedItemsets(Itemset<LabelType> itemset, Itemset<LabelType> extractedItemset) {
+        extractedItemsets.computeIfAbsent(itemset, key -> new ArrayList<>()).add(extractedItemset);
+    }
+
+    /**
+     * The unit of work for parallel extraction, i.e. one {@link Itemset} in one {@link DataPoint}.
+     */
+    static class ExtractionUnit<LabelType extends Comparable<LabelType>> {
+
+        private final Itemset<LabelType> itemset;
+        private final DataPoint<LabelType> dataPoint;
+
+        ExtractionUnit(Itemset<LabelType> itemset, DataPoint<LabelType> dataPoint) {
+            this.itemset = itemset;
+            this.dataPoint = dataPoint;
+        }
+
+        Itemset<LabelType> getItemset() {
+            return itemset;
+        }
+
+        DataPoint<LabelType> getDataPoint() {
+            return dataPoint;
+        }
+    }
+}
@@ -1,21 +1,17 @@
 package bio.fkaiser.mmm.model.metrics;
 
-import bio.fkaiser.mmm.Itemsets;
+import bio.fkaiser.mmm.MiningExecutor;
 import bio.fkaiser.mmm.model.DataPoint;
 import bio.fkaiser.mmm.model.Distribution;
 import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.SquaredDistances;
 import bio.fkaiser.mmm.model.configurations.metrics.AdherenceMetricConfiguration;
+import bio.fkaiser.mmm.model.metrics.cohesion.ItemsetObservation;
 import bio.fkaiser.mmm.model.metrics.cohesion.VertexCandidateGenerator;
-import de.bioforscher.singa.mathematics.vectors.RegularVector;
-import de.bioforscher.singa.mathematics.vectors.Vectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -34,19 +30,18 @@ public class AdherenceMetric<LabelType extends Comparable<LabelType>> extends Ab
     private final double desiredSquaredExtent;
     private final double squaredExtentDelta;
     private final boolean vertexOne;
-    private final int levelOfParallelism;
-    private final ExecutorService executorService;
     private final Map<Itemset<LabelType>, Distribution> distributions;
+    private MiningExecutor miningExecutor;
+    private int distributionCapacity = Distribution.UNBOUNDED;
 
     public AdherenceMetric(List<DataPoint<LabelType>> dataPoints, AdherenceMetricConfiguration<LabelType> adherenceMetricConfiguration) {
         super(dataPoints, adherenceMetricConfiguration.getRepresentationSchemeType());
-        distributions = Collections.synchronizedMap(new HashMap<>());
+        distributions = new HashMap<>();
         desiredSquaredExtent = adherenceMetricConfiguration.getDesiredExtent() * adherenceMetricConfiguration.getDesiredExtent();
         squaredExtentDelta = adherenceMetricConfiguration.getDesiredExtentDelta() * adherenceMetricConfiguration.getDesiredExtentDelta();
         maximalAdherence = adherenceMetricConfiguration.getMaximalAdherence();
         vertexOne = adherenceMetricConfiguration.isVertexOne();
-        levelOfParallelism = adherenceMetricConfiguration.getLevelOfParallelism();
-        executorService = (levelOfParallelism == -1) ? Executors.newWorkStealingPool() : Executors.newWorkStealingPool(levelOfParallelism);
+        miningExecutor = MiningExecutor.common();
     }
 
     @Override
@@ -74,42 +69,40 @@ public class AdherenceMetric<LabelType extends Comparable<LabelType>> extends Ab
         // clear storage of extracted itemsets of previous round
         extractedItemsets = new HashMap<>();
 
-        // create chunks for parallel execution
-        List<List<Itemset<LabelType>>> partitions = partition(new ArrayList<>(itemsets), (levelOfParallelism == -1) ? AVAILABLE_PROCESSORS : levelOfParallelism);
-
-        // create jobs
-        List<AdherenceCalculator> jobs = partitions.stream()
-                                                   .map(AdherenceCalculator::new)
-                                                   .collect(Collectors.toList());
-
-        // execute jobs
-        try {
-            executorService.invokeAll(jobs).forEach(future -> {
-                try {
-                    future.get();
-                } catch (InterruptedException | ExecutionException e) {
-                    throw new IllegalStateException(e);
-                }
-            });
-        } catch (InterruptedException e) {
-            logger.error("parallel adherence execution of {} failed", this, e);
+        // determine candidates close to the desired extent for each itemset in each supporting data point in parallel
+        List<ExtractionUnit<LabelType>> extractionUnits = createExtractionUnits(itemsets);
+        List<List<ItemsetObservation<LabelType>>> acceptedCandidates = miningExecutor.computeInParallel("adherence extraction", extractionUnits, this::findAcceptedCandidates);
+
+        // merge results in the order of the extraction units
+        List<Itemset<LabelType>> observedItemsets = new ArrayList<>();
+        List<ItemsetObservation<LabelType>> observations = new ArrayList<>();
+        for (int i = 0; i < extractionUnits.size(); i++) {
+            Itemset<LabelType> itemset = extractionUnits.get(i).getItemset();
+            for (ItemsetObservation<LabelType> candidate : acceptedCandidates.get(i)) {
+                // store extent for probability distribution
+                addObservationForItemset(itemset, Math.sqrt(candidate.getSquaredExtent()));
+                observedItemsets.add(itemset);
+                observations.add(candidate);
+            }
+        }
+
+        // only stored candidates are materialized
+        List<Itemset<LabelType>> materializedItemsets = miningExecutor.computeInParallel("adherence materialization", observations, ItemsetObservation::toItemset);
+        for (int i = 0; i < observedItemsets.size(); i++) {
+            addToExtractedItemsets(observedItemsets.get(i), materializedItemsets.get(i));
         }
 
         for (Itemset<LabelType> itemset : itemsets) {
             if (distributions.containsKey(itemset)) {
                 Distribution distribution = distributions.get(itemset);
-                if (distribution.getObservations().size() < AdherenceMetricConfiguration.MINIMAL_OBSERVATIONS) {
+                if (distribution.getObservationCount() < AdherenceMetricConfiguration.MINIMAL_OBSERVATIONS) {
                     logger.debug("not enough observations to determine adherence for itemset {}, will be removed", itemset);
                     itemset.setAdherence(Double.MAX_VALUE);
                     continue;
                 }
 
                 // calculate adherence of itemset (standard deviation of extent values)
-                double[] elements = distribution.getObservations().stream()
-                                                .mapToDouble(Double::doubleValue)
-                                                .toArray();
-                RegularVector vector = new RegularVector(elements);
-                itemset.setAdherence(Vectors.getStandardDeviation(vector));
+                itemset.setAdherence(distribution.getPopulationStandardDeviation());
 
             } else {
                 // ignore itemsets that could not be found in the data
@@ -130,49 +123,50 @@ public class AdherenceMetric<LabelType extends Comparable<LabelType>> extends Ab
     }
 
     @Override
-    public Map<Itemset<LabelType>, Distribution> getDistributions() {
-        return distributions;
+    public MiningExecutor getMiningExecutor() {
+        return miningExecutor;
     }
 
-    private class AdherenceCalculator implements Callable<Void> {
-        private List<Itemset<LabelType>> itemsets;
-
-        public AdherenceCalculator(List<Itemset<LabelType>> itemsets) {
-            this.itemsets = itemsets;
-        }
-
-        @Override
-        public Void call() throws Exception {
+    @Override
+    public void setMiningExecutor(MiningExecutor miningExecutor) {
+        this.miningExecutor = miningExecutor;
+    }
 
-            for (Itemset<LabelType> itemset : itemsets) {
+    @Override
+    public Map<Itemset<LabelType>, Distribution> getDistributions() {
+        return distributions;
+    }
 
-                for (DataPoint<LabelType> dataPoint : dataPoints) {
+    @Override
+    public int getDistributionCapacity() {
+        return distributionCapacity;
+    }
 
-                    // generate candidates
-                    VertexCandidateGenerator<LabelType> vertexCandidateGenerator = new VertexCandidateGenerator<>(itemset, dataPoint, obtainSquaredDistanceMatrix(dataPoint), vertexOne);
-                    List<Itemset<LabelType>> candidates = vertexCandidateGenerator.generateCandidates();
+    @Override
+    public void setDistributionCapacity(int distributionCapacity) {
+        this.distributionCapacity = distributionCapacity;
+    }
 
-                    if (!candidates.isEmpty()) {
-                        // find and store candidates close to given adherence
-                        for (Itemset<LabelType> candidate : candidates) {
+    private List<ItemsetObservation<LabelType>> findAcceptedCandidates(ExtractionUnit<LabelType> extractionUnit) {
+        DataPoint<LabelType> dataPoint = extractionUnit.getDataPoint();
 
-                            // calculate the squared extent of the candidate
-                            double candidateSquaredExtent = Itemsets.calculateMaximalSquaredExtent(candidate);
+        // generate candidates
+        SquaredDistances squaredDistances = obtainSquaredDistances(dataPoint);
+        VertexCandidateGenerator<LabelType> vertexCandidateGenerator = new VertexCandidateGenerator<>(extractionUnit.getItemset(), dataPoint, squaredDistances, vertexOne);
+        // candidates exceeding the upper limit of the desired extent are abandoned during generation
+        List<ItemsetObservation<LabelType>> candidates = vertexCandidateGenerator.generateObservations(desiredSquaredExtent + squaredExtentDelta);
+        if (candidates.isEmpty()) {
+            logger.debug("no candidates found for itemset {} in data point {}", extractionUnit.getItemset(), dataPoint);
+        }
 
-                            // if candidate extent fulfills constraints
-                            if ((candidateSquaredExtent > (desiredSquaredExtent - squaredExtentDelta)) && candidateSquaredExtent < ((desiredSquaredExtent + squaredExtentDelta))) {
-                                addToExtractedItemsets(itemset, candidate);
-                                // store extent for probability distribution
-                                addObservationForItemset(itemset, Math.sqrt(candidateSquaredExtent));
-                            }
-                        }
-                    } else {
-                        logger.debug("no candidates found for itemset {} in data point {}", itemset, dataPoint);
-                    }
-                }
+        // find candidates close to given adherence
+        List<ItemsetObservation<LabelType>> acceptedCandidates = new ArrayList<>();
+        for (ItemsetObservation<LabelType> candidate : candidates) {
+            // if candidate extent fulfills constraints
+            if (candidate.getSquaredExtent() > (desiredSquaredExtent - squaredExtentDelta)) {
+                acceptedCandidates.add(candidate);
             }
-
-            return null;
         }
+        return acceptedCandidates;
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package bio.fkaiser.mmm.model.metrics;
 
+import bio.fkaiser.mmm.MiningExecutor;
 import bio.fkaiser.mmm.model.Distribution;
 import bio.fkaiser.mmm.model.Itemset;
 import bio.fkaiser.mmm.model.configurations.metrics.AffinityMetricConfiguration;
@@ -11,10 +12,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -28,18 +25,17 @@ public class AffinityMetric<LabelType extends Comparable<LabelType>> extends Abs
     private static final Logger logger = LoggerFactory.getLogger(AffinityMetric.class);
 
     private final double maximalAffinity;
-    private final int levelOfParallelism;
-    private final ExecutorService executorService;
     private final RepresentationSchemeType representationSchemeType;
     private final Predicate<Atom> atomFilter;
     private final boolean alignWithinClusters;
     private final Map<Itemset<LabelType>, Distribution> distributions;
     private final Map<Itemset<LabelType>, AffinityAlignment> affinityItemsets;
+    private MiningExecutor miningExecutor;
+    private int distributionCapacity = Distribution.UNBOUNDED;
 
     public AffinityMetric(AffinityMetricConfiguration<LabelType> affinityMetricConfiguration) {
         maximalAffinity = affinityMetricConfiguration.getMaximalAffinity();
-        levelOfParallelism = affinityMetricConfiguration.getLevelOfParallelism();
-        executorService = (levelOfParallelism == -1) ? Executors.newWorkStealingPool() : Executors.newWorkStealingPool(levelOfParallelism);
+        miningExecutor = MiningExecutor.common();
         representationSchemeType = affinityMetricConfiguration.getRepresentationSchemeType();
         atomFilter = affinityMetricConfiguration.getAtomFilterType().getFilter();
         alignWithinClusters = affinityMetricConfiguration.isAlignWithinClusters();
@@ -101,11 +97,31 @@ public class AffinityMetric<LabelType extends Comparable<LabelType>> extends Abs
         return affinityItemsets;
     }
 
+    @Override
+    public MiningExecutor getMiningExecutor() {
+        return miningExecutor;
+    }
+
+    @Override
+    public void setMiningExecutor(MiningExecutor miningExecutor) {
+        this.miningExecutor = miningExecutor;
+    }
+
     @Override
     public Map<Itemset<LabelType>, Distribution> getDistributions() {
         return distributions;
     }
 
+    @Override
+    public int getDistributionCapacity() {
+        return distributionCapacity;
+    }
+
+    @Override
+    public void setDistributionCapacity(int distributionCapacity) {
+        this.distributionCapacity = distributionCapacity;
+    }
+
     @Override
     public int getMinimalItemsetSize() {
         return 2;
@@ -122,27 +138,19 @@ public class AffinityMetric<LabelType extends Comparable<LabelType>> extends Abs
 
     private Set<Itemset<LabelType>> calculateAffinity(Set<Itemset<LabelType>> itemsets) {
 
-        // create chunks for parallel execution
-        List<List<Itemset<LabelType>>> partitions = partition(new ArrayList<>(itemsets), (levelOfParallelism == -1) ? AVAILABLE_PROCESSORS : levelOfParallelism);
-
-        // create jobs
-        List<AffinityCalculator> jobs = partitions.stream()
-                                                  .map(AffinityCalculator::new)
-                                                  .collect(Collectors.toList());
-        // execute jobs
-        try {
-            executorService.invokeAll(jobs).stream()
-                           .map(future -> {
-                               try {
-                                   return future.get();
-                               } catch (InterruptedException | ExecutionException e) {
-                                   throw new IllegalStateException(e);
-                               }
-                           })
-                           .collect(Collectors.toList())
-                           .forEach(affinityItemsets::putAll);
-        } catch (InterruptedException e) {
-            logger.error("parallel execution of {} failed", this, e);
+        // perform the alignment of each itemset in parallel
+        List<Itemset<LabelType>> itemsetList = new ArrayList<>(itemsets);
+        List<AffinityAlignment> affinityAlignments = miningExecutor.computeInParallel("affinity alignment", itemsetList, this::alignExtractedItemsets);
+
+        // merge results
+        for (int i = 0; i < itemsetList.size(); i++) {
+            Itemset<LabelType> itemset = itemsetList.get(i);
+            AffinityAlignment affinityAlignment = affinityAlignments.get(i);
+            affinityItemsets.put(itemset, affinityAlignment);
+
+            // TODO preliminary naive computation of score for affinity
+            double affinity = calculateAffinity(affinityAlignment);
+            itemset.setAffinity(affinity);
         }
 
         return itemsets;
@@ -160,48 +168,30 @@ public class AffinityMetric<LabelType extends Comparable<LabelType>> extends Abs
                '}';
     }
 
-    private class AffinityCalculator implements Callable<Map<Itemset<LabelType>, AffinityAlignment>> {
-        private final List<Itemset<LabelType>> itemsets;
-
-        public AffinityCalculator(List<Itemset<LabelType>> itemsets) {
-            this.itemsets = itemsets;
-        }
-
-        @Override
-        public Map<Itemset<LabelType>, AffinityAlignment> call() throws Exception {
-            Map<Itemset<LabelType>, AffinityAlignment> affinityItemsets = new HashMap<>();
-            for (Itemset<LabelType> itemset : itemsets) {
-                // get structural motifs for current itemset
-                List<StructuralMotif> structuralMotifs = extractedItemsets.get(itemset).stream()
-                                                                          .map(Itemset::getStructuralMotif)
-                                                                          .filter(Optional::isPresent)
-                                                                          .map(Optional::get)
-                                                                          .collect(Collectors.toList());
-                // perform consensus alignment
-                AffinityAlignment affinityAlignment;
-                if (representationSchemeType != null) {
-                    affinityAlignment = AffinityAlignment.create()
-                                                         .inputStructuralMotifs(structuralMotifs)
-                                                         .representationSchemeType(representationSchemeType)
-                                                         .alignWithinClusters(alignWithinClusters)
-                                                         .idealSuperimposition(false)
-                                                         .run();
-                } else {
-                    affinityAlignment = AffinityAlignment.create()
-                                                         .inputStructuralMotifs(structuralMotifs)
-                                                         .atomFilter(atomFilter)
-                                                         .alignWithinClusters(alignWithinClusters)
-                                                         .idealSuperimposition(false)
-                                                         .run();
-                }
-
-                affinityItemsets.put(itemset, affinityAlignment);
-
-                // TODO preliminary naive computation of score for affinity
-                double affinity = calculateAffinity(affinityAlignment);
-                itemset.setAffinity(affinity);
-            }
-            return affinityItemsets;
+    private AffinityAlignment alignExtractedItemsets(Itemset<LabelType> itemset) {
+        // get structural motifs for current itemset
+        List<StructuralMotif> structuralMotifs = extractedItemsets.get(itemset).stream()
+                                                                  .map(Itemset::getStructuralMotif)
+                                                                  .filter(Optional::isPresent)
+                                                                  .map(Optional::get)
+                                                                  .collect(Collectors.toList());
+        // perform consensus alignment
+        AffinityAlignment affinityAlignment;
+        if (representationSchemeType != null) {
+            affinityAlignment = AffinityAlignment.create()
+                                                 .inputStructuralMotifs(structuralMotifs)
+                                                 .representationSchemeType(representationSchemeType)
+                                                 .alignWithinClusters(alignWithinClusters)
+                                                 .idealSuperimposition(false)
+                                                 .run();
+        } else {
+            affinityAlignment = AffinityAlignment.create()
+                                                 .inputStructuralMotifs(structuralMotifs)
+                                                 .atomFilter(atomFilter)
+                                                 .alignWithinClusters(alignWithinClusters)
+                                                 .idealSuperimposition(false)
+                                                 .run();
         }
+        return affinityAlignment;
     }
 }
@@ -1,20 +1,17 @@
 package bio.fkaiser.mmm.model.metrics;
 
-import bio.fkaiser.mmm.Itemsets;
+import bio.fkaiser.mmm.MiningExecutor;
 import bio.fkaiser.mmm.model.DataPoint;
 import bio.fkaiser.mmm.model.Distribution;
 import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.SquaredDistances;
 import bio.fkaiser.mmm.model.configurations.metrics.CohesionMetricConfiguration;
-import bio.fkaiser.mmm.model.metrics.cohesion.CohesionMetricException;
+import bio.fkaiser.mmm.model.metrics.cohesion.ItemsetObservation;
 import bio.fkaiser.mmm.model.metrics.cohesion.VertexCandidateGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -36,18 +33,16 @@ public class CohesionMetric<LabelType extends Comparable<LabelType>> extends Abs
 
     private final double maximalCohesion;
     private final boolean vertexOne;
-    private final int levelOfParallelism;
-    private final ExecutorService executorService;
     private final Map<Itemset<LabelType>, Distribution> distributions;
-    private Map<Itemset<LabelType>, Integer> itemsetObservationsCounts;
+    private MiningExecutor miningExecutor;
+    private int distributionCapacity = Distribution.UNBOUNDED;
 
     public CohesionMetric(List<DataPoint<LabelType>> dataPoints, CohesionMetricConfiguration<LabelType> cohesionMetricConfiguration) {
         super(dataPoints, cohesionMetricConfiguration.getRepresentationSchemeType());
         distributions = new HashMap<>();
         maximalCohesion = cohesionMetricConfiguration.getMaximalCohesion();
         vertexOne = cohesionMetricConfiguration.isVertexOne();
-        levelOfParallelism = cohesionMetricConfiguration.getLevelOfParallelism();
-        executorService = (levelOfParallelism == -1) ? Executors.newWorkStealingPool() : Executors.newWorkStealingPool(levelOfParallelism);
+        miningExecutor = MiningExecutor.common();
     }
 
     @Override
@@ -66,34 +61,45 @@ public class CohesionMetric<LabelType extends Comparable<LabelType>> extends Abs
         // clear storage of extracted itemsets of previous round
         extractedItemsets = new HashMap<>();
 
-        // the storage for observation counts
-        itemsetObservationsCounts = new HashMap<>();
-
-        // create chunks for parallel execution
-        List<List<Itemset<LabelType>>> partitions = partition(new ArrayList<>(itemsets), (levelOfParallelism == -1) ? AVAILABLE_PROCESSORS : levelOfParallelism);
-
-        // create jobs
-        List<CohesionCalculator> jobs = partitions.stream()
-                                                  .map(CohesionCalculator::new)
-                                                  .collect(Collectors.toList());
-
-        // execute jobs
-        try {
-            executorService.invokeAll(jobs).forEach(future -> {
-                try {
-                    future.get();
-                } catch (InterruptedException | ExecutionException e) {
-                    throw new IllegalStateException(e);
-                }
-            });
-        } catch (InterruptedException e) {
-            logger.error("parallel cohesion execution of {} failed", this, e);
+        // determine the candidate with minimal extent for each itemset in each supporting data point in parallel
+        List<ExtractionUnit<LabelType>> extractionUnits = createExtractionUnits(itemsets);
+        List<Optional<ItemsetObservation<LabelType>>> bestCandidates = miningExecutor.computeInParallel("cohesion extraction", extractionUnits, this::findBestCandidate);
+
+        // merge results in the order of the extraction units, cohesion is accumulated per itemset and assigned once
+        Map<Itemset<LabelType>, CohesionAccumulator> cohesionAccumulators = new HashMap<>();
+        List<Itemset<LabelType>> observedItemsets = new ArrayList<>();
+        List<ItemsetObservation<LabelType>> observations = new ArrayList<>();
+        for (int i = 0; i < extractionUnits.size(); i++) {
+            Itemset<LabelType> itemset = extractionUnits.get(i).getItemset();
+            Optional<ItemsetObservation<LabelType>> bestCandidate = bestCandidates.get(i);
+            if (bestCandidate.isPresent()) {
+
+                double squaredExtent = bestCandidate.get().getSquaredExtent();
+
+                // count observations of the itemset and sum up cohesion
+                cohesionAccumulators.computeIfAbsent(itemset, key -> new CohesionAccumulator()).add(squaredExtent);
+
+                // store extent for probability distribution
+                addObservationForItemset(itemset, Math.sqrt(squaredExtent));
+
+                observedItemsets.add(itemset);
+                observations.add(bestCandidate.get());
+            } else {
+                logger.debug("no candidates found for itemset {} in data point {}", itemset, extractionUnits.get(i).getDataPoint());
+            }
+        }
+
+        // only the stored candidates with minimal squared extent are materialized
+        List<Itemset<LabelType>> materializedItemsets = miningExecutor.computeInParallel("cohesion materialization", observations, ItemsetObservation::toItemset);
+        for (int i = 0; i < observedItemsets.size(); i++) {
+            addToExtractedItemsets(observedItemsets.get(i), materializedItemsets.get(i));
         }
 
         // normalize cohesion
         itemsets.forEach(itemset -> {
-            if (itemsetObservationsCounts.containsKey(itemset)) {
-                itemset.setCohesion(Math.sqrt(itemset.getCohesion() / itemsetObservationsCounts.get(itemset)));
+            CohesionAccumulator cohesionAccumulator = cohesionAccumulators.get(itemset);
+            if (cohesionAccumulator != null) {
+                itemset.setCohesion(Math.sqrt(cohesionAccumulator.squaredExtentSum / cohesionAccumulator.observationCount));
             } else {
                 // ignore itemsets that could not be found in the data
                 logger.debug("no observations to determine cohesion for itemset {}, will be removed", itemset);
@@ -119,66 +125,54 @@ public class CohesionMetric<LabelType extends Comparable<LabelType>> extends Abs
         extractedItemsets.entrySet().removeIf(entry -> entry.getKey().getCohesion() > maximalCohesion);
     }
 
-    private synchronized void incrementObservationCount(Itemset<LabelType> itemset) {
-        if (itemsetObservationsCounts.containsKey(itemset)) {
-            itemsetObservationsCounts.put(itemset, itemsetObservationsCounts.get(itemset) + 1);
-        } else {
-            itemsetObservationsCounts.put(itemset, 1);
-        }
-    }
-
     @Override
     public boolean isVertexOne() {
         return vertexOne;
     }
 
     @Override
-    public Map<Itemset<LabelType>, Distribution> getDistributions() {
-        return distributions;
+    public MiningExecutor getMiningExecutor() {
+        return miningExecutor;
     }
 
-    private class CohesionCalculator implements Callable<Void> {
-        private List<Itemset<LabelType>> itemsets;
-
-        CohesionCalculator(List<Itemset<LabelType>> itemsets) {
-            this.itemsets = itemsets;
-        }
-
-        @Override
-        public Void call() {
-
-            for (Itemset<LabelType> itemset : itemsets) {
-
-                for (DataPoint<LabelType> dataPoint : dataPoints) {
-
-                    // generate candidates
-                    VertexCandidateGenerator<LabelType> vertexCandidateGenerator = new VertexCandidateGenerator<>(itemset, dataPoint, obtainSquaredDistanceMatrix(dataPoint), vertexOne);
-                    List<Itemset<LabelType>> candidates = vertexCandidateGenerator.generateCandidates();
+    @Override
+    public void setMiningExecutor(MiningExecutor miningExecutor) {
+        this.miningExecutor = miningExecutor;
+    }
 
-                    if (!candidates.isEmpty()) {
+    @Override
+    public Map<Itemset<LabelType>, Distribution> getDistributions() {
+        return distributions;
+    }
 
-                        // count observations of the itemset and sum up cohesion
-                        incrementObservationCount(itemset);
+    @Override
+    public int getDistributionCapacity() {
+        return distributionCapacity;
+    }
 
-                        // find and store candidate with minimal squared extent
-                        Itemset<LabelType> bestCandidate = candidates.stream()
-                                                                     .min((Comparator.comparingDouble(Itemsets::calculateMaximalSquaredExtent)))
-                                                                     .orElseThrow(() -> new CohesionMetricException("failed to get candidate with minimal extent"));
-                        addToExtractedItemsets(itemset, bestCandidate);
+    @Override
+    public void setDistributionCapacity(int distributionCapacity) {
+        this.distributionCapacity = distributionCapacity;
+    }
 
-                        double squaredExtent = Itemsets.calculateMaximalSquaredExtent(bestCandidate);
+    private Optional<ItemsetObservation<LabelType>> findBestCandidate(ExtractionUnit<LabelType> extractionUnit) {
+        DataPoint<LabelType> dataPoint = extractionUnit.getDataPoint();
+        SquaredDistances squaredDistances = obtainSquaredDistances(dataPoint);
+        VertexCandidateGenerator<LabelType> vertexCandidateGenerator = new VertexCandidateGenerator<>(extractionUnit.getItemset(), dataPoint, squaredDistances, vertexOne);
+        return vertexCandidateGenerator.findMinimalExtentObservation();
+    }
 
-                        // store extent for probability distribution
-                        addObservationForItemset(itemset, Math.sqrt(squaredExtent));
+    /**
+     * Accumulates the squared extents of all observations of an {@link Itemset}.
+     */
+    private static class CohesionAccumulator {
 
-                        itemset.setCohesion(itemset.getCohesion() + squaredExtent);
-                    } else {
-                        logger.debug("no candidates found for itemset {} in data point {}", itemset, dataPoint);
-                    }
-                }
-            }
+        private int observationCount;
+        private double squaredExtentSum;
 
-            return null;
+        private void add(double squaredExtent) {
+            observationCount++;
+            squaredExtentSum += squaredExtent;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package bio.fkaiser.mmm.model.metrics;
 
+import bio.fkaiser.mmm.MiningExecutor;
 import bio.fkaiser.mmm.model.Distribution;
 import bio.fkaiser.mmm.model.Itemset;
 import bio.fkaiser.mmm.model.configurations.metrics.ConsensusMetricConfiguration;
@@ -12,10 +13,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -36,17 +33,16 @@ public class ConsensusMetric<LabelType extends Comparable<LabelType>> extends Ab
     private final double maximalConsensus;
     private final double clusterCutoff;
     private final Predicate<Atom> atomFilter;
-    private final int levelOfParallelism;
-    private final ExecutorService executorService;
     private final boolean alignWithinClusters;
     private final RepresentationSchemeType representationSchemeType;
     private Map<Itemset<LabelType>, Distribution> distributions;
+    private MiningExecutor miningExecutor;
+    private int distributionCapacity = Distribution.UNBOUNDED;
 
     public ConsensusMetric(ConsensusMetricConfiguration<LabelType> consensusMetricConfiguration) {
         maximalConsensus = consensusMetricConfiguration.getMaximalConsensus();
         clusterCutoff = consensusMetricConfiguration.getClusterCutoffValue();
-        levelOfParallelism = consensusMetricConfiguration.getLevelOfParallelism();
-        executorService = (levelOfParallelism == -1) ? Executors.newWorkStealingPool() : Executors.newWorkStealingPool(levelOfParallelism);
+        miningExecutor = MiningExecutor.common();
         atomFilter = consensusMetricConfiguration.getAtomFilter() == null ? consensusMetricConfiguration.getAtomFilterType().getFilter() : consensusMetricConfiguration.getAtomFilter();
         representationSchemeType = consensusMetricConfiguration.getRepresentationSchemeType();
         alignWithinClusters = consensusMetricConfiguration.isAlignWithinClusters();
@@ -82,27 +78,19 @@ public class ConsensusMetric<LabelType extends Comparable<LabelType>> extends Ab
 
     private Set<Itemset<LabelType>> calculateConsensus(Set<Itemset<LabelType>> itemsets) {
 
-        // create chunks for parallel execution
-        List<List<Itemset<LabelType>>> partitions = partition(new ArrayList<>(itemsets), (levelOfParallelism == -1) ? AVAILABLE_PROCESSORS : levelOfParallelism);
-
-        // create jobs
-        List<ConsensusCalculator> jobs = partitions.stream()
-                                                   .map(ConsensusCalculator::new)
-                                                   .collect(Collectors.toList());
-        // execute jobs
-        try {
-            executorService.invokeAll(jobs).stream()
-                           .map(future -> {
-                               try {
-                                   return future.get();
-                               } catch (InterruptedException | ExecutionException e) {
-                                   throw new IllegalStateException(e);
-                               }
-                           })
-                           .collect(Collectors.toList())
-                           .forEach(clusteredItemsets::putAll);
-        } catch (InterruptedException e) {
-            logger.error("parallel execution of {} failed", this, e);
+        // perform the alignment of each itemset in parallel
+        List<Itemset<LabelType>> itemsetList = new ArrayList<>(itemsets);
+        List<ConsensusAlignment> consensusAlignments = miningExecutor.computeInParallel("consensus alignment", itemsetList, this::alignExtractedItemsets);
+
+        // merge results
+        for (int i = 0; i < itemsetList.size(); i++) {
+            Itemset<LabelType> itemset = itemsetList.get(i);
+            ConsensusAlignment consensusAlignment = consensusAlignments.get(i);
+            consensusAlignment.getAlignmentTrace().forEach(observationValue -> addObservationForItemset(itemset, observationValue));
+
+            // store consensus score
+            itemset.setConsensus(calculateConsensus(consensusAlignment));
+            clusteredItemsets.put(itemset, consensusAlignment);
         }
 
         return itemsets;
@@ -117,61 +105,62 @@ public class ConsensusMetric<LabelType extends Comparable<LabelType>> extends Ab
         return clusteredItemsets;
     }
 
+    @Override
+    public MiningExecutor getMiningExecutor() {
+        return miningExecutor;
+    }
+
+    @Override
+    public void setMiningExecutor(MiningExecutor miningExecutor) {
+        this.miningExecutor = miningExecutor;
+    }
+
     @Override public Map<Itemset<LabelType>, Distribution> getDistributions() {
         return distributions;
     }
 
     @Override
-    public int getMinimalItemsetSize() {
-        return 2;
+    public int getDistributionCapacity() {
+        return distributionCapacity;
     }
 
-    private class ConsensusCalculator implements Callable<Map<Itemset<LabelType>, ConsensusAlignment>> {
-        private final List<Itemset<LabelType>> itemsets;
+    @Override
+    public void setDistributionCapacity(int distributionCapacity) {
+        this.distributionCapacity = distributionCapacity;
+    }
 
-        public ConsensusCalculator(List<Itemset<LabelType>> itemsets) {
-            this.itemsets = itemsets;
-        }
+    @Override
+    public int getMinimalItemsetSize() {
+        return 2;
+    }
 
-        @Override
-        public Map<Itemset<LabelType>, ConsensusAlignment> call() throws Exception {
-            Map<Itemset<LabelType>, ConsensusAlignment> clusteredItemsets = new HashMap<>();
-            for (Itemset<LabelType> itemset : itemsets) {
-
-                // get structural motifs for current itemset
-                List<StructuralMotif> structuralMotifs = extractedItemsets.get(itemset).stream()
-                                                                          .map(Itemset::getStructuralMotif)
-                                                                          .filter(Optional::isPresent)
-                                                                          .map(Optional::get)
-                                                                          .collect(Collectors.toList());
-
-                // perform consensus alignment
-                ConsensusAlignment consensusAlignment;
-                if (representationSchemeType != null) {
-                    consensusAlignment = ConsensusBuilder.create()
-                                                         .inputStructuralMotifs(structuralMotifs)
-                                                         .representationSchemeType(representationSchemeType)
-                                                         .clusterCutoff(clusterCutoff)
-                                                         .alignWithinClusters(alignWithinClusters)
-                                                         .idealSuperimposition(false)
-                                                         .run();
-                } else {
-                    consensusAlignment = ConsensusBuilder.create()
-                                                         .inputStructuralMotifs(structuralMotifs)
-                                                         .atomFilter(atomFilter)
-                                                         .clusterCutoff(clusterCutoff)
-                                                         .alignWithinClusters(alignWithinClusters)
-                                                         .idealSuperimposition(false)
-                                                         .run();
-                }
-
-                consensusAlignment.getAlignmentTrace().forEach(observationValue -> addObservationForItemset(itemset, observationValue));
-
-                // store consensus score
-                itemset.setConsensus(calculateConsensus(consensusAlignment));
-                clusteredItemsets.put(itemset, consensusAlignment);
-            }
-            return clusteredItemsets;
+    private ConsensusAlignment alignExtractedItemsets(Itemset<LabelType> itemset) {
+        // get structural motifs for current itemset
+        List<StructuralMotif> structuralMotifs = extractedItemsets.get(itemset).stream()
+                                                                  .map(Itemset::getStructuralMotif)
+                                                                  .filter(Optional::isPresent)
+                                                                  .map(Optional::get)
+                                                                  .collect(Collectors.toList());
+
+        // perform consensus alignment
+        ConsensusAlignment consensusAlignment;
+        if (representationSchemeType != null) {
+            consensusAlignment = ConsensusBuilder.create()
+                                                 .inputStructuralMotifs(structuralMotifs)
+                                                 .representationSchemeType(representationSchemeType)
+                                                 .clusterCutoff(clusterCutoff)
+                                                 .alignWithinClusters(alignWithinClusters)
+                                                 .idealSuperimposition(false)
+                                                 .run();
+        } else {
+            consensusAlignment = ConsensusBuilder.create()
+                                                 .inputStructuralMotifs(structuralMotifs)
+                                                 .atomFilter(atomFilter)
+                                                 .clusterCutoff(clusterCutoff)
+                                                 .alignWithinClusters(alignWithinClusters)
+                                                 .idealSuperimposition(false)
+                                                 .run();
         }
+        return consensusAlignment;
     }
 }
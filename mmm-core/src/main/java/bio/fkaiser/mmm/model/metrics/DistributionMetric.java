@@ -12,17 +12,29 @@ import java.util.Map;
  */
 public interface DistributionMetric<LabelType extends Comparable<LabelType>> extends EvaluationMetric<LabelType> {
 
+    /**
+     * Adds an observed value to the {@link Distribution} of the given {@link Itemset}. This is not thread-safe, hence observations of parallel
+     * tasks have to be collected first and are added once all tasks are completed.
+     *
+     * @param itemset          The {@link Itemset} for which the value was observed.
+     * @param observationValue The observed value.
+     */
     default void addObservationForItemset(Itemset<LabelType> itemset, double observationValue) {
-        //FIXME when called concurrently there is the rare case of NPE
-        Map<Itemset<LabelType>, Distribution> distributions = getDistributions();
-        if (distributions.containsKey(itemset)) {
-            distributions.get(itemset).addObservationValue(observationValue);
-        } else {
-            Distribution distribution = new Distribution(this.getClass());
-            distribution.addObservationValue(observationValue);
-            distributions.put(itemset, distribution);
-        }
+        getDistributions().computeIfAbsent(itemset, key -> new Distribution(getClass(), getDistributionCapacity()))
+                          .addObservationValue(observationValue);
     }
 
     Map<Itemset<LabelType>, Distribution> getDistributions();
+
+    /**
+     * @return The maximal number of observations stored per {@link Distribution} or {@link Distribution#UNBOUNDED}.
+     */
+    int getDistributionCapacity();
+
+    /**
+     * Sets the maximal number of observations stored per {@link Distribution}. Observations beyond this capacity are reservoir sampled.
+     *
+     * @param distributionCapacity The maximal number of stored observations or {@link Distribution#UNBOUNDED}.
+     */
+    void setDistributionCapacity(int distributionCapacity);
 }
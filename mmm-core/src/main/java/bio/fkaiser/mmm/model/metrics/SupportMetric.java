@@ -1,7 +1,9 @@
 package bio.fkaiser.mmm.model.metrics;
 
 import bio.fkaiser.mmm.model.DataPoint;
+import bio.fkaiser.mmm.model.DataPointLabelIndex;
 import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.LabelDictionary;
 import bio.fkaiser.mmm.model.configurations.metrics.SupportMetricConfiguration;
 
 import java.util.Comparator;
@@ -22,12 +24,24 @@ public class SupportMetric<LabelType extends Comparable<LabelType>> implements S
 
     private final List<DataPoint<LabelType>> dataPoints;
     private final double minimalSupport;
+    private LabelDictionary<LabelType> labelDictionary;
+    private DataPointLabelIndex<LabelType> dataPointLabelIndex;
 
     public SupportMetric(List<DataPoint<LabelType>> dataPoints, SupportMetricConfiguration<LabelType> supportMetricConfiguration) {
         this.dataPoints = dataPoints;
         this.minimalSupport = supportMetricConfiguration.getMinimalSupport();
     }
 
+    /**
+     * Sets the {@link LabelDictionary} of the mining run, which is used by the index of supporting {@link DataPoint}s instead of a private one.
+     *
+     * @param labelDictionary The {@link LabelDictionary} containing all labels of the {@link DataPoint}s.
+     */
+    public void setLabelDictionary(LabelDictionary<LabelType> labelDictionary) {
+        this.labelDictionary = labelDictionary;
+        dataPointLabelIndex = null;
+    }
+
     @Override public String toString() {
         return "SupportMetric{" +
                "minimalSupport=" + minimalSupport +
@@ -48,13 +62,12 @@ public class SupportMetric<LabelType extends Comparable<LabelType>> implements S
      * @return Itemsets with calculated support.
      */
     private Set<Itemset<LabelType>> calculateSupport(Set<Itemset<LabelType>> itemsets) {
+        // the index is built once and reused for all subsequent epochs
+        if (dataPointLabelIndex == null) {
+            dataPointLabelIndex = labelDictionary == null ? new DataPointLabelIndex<>(dataPoints) : new DataPointLabelIndex<>(dataPoints, labelDictionary);
+        }
         for (Itemset<LabelType> itemset : itemsets) {
-            double support = 0.0;
-            for (DataPoint<LabelType> dataPoint : dataPoints) {
-                if (dataPoint.getItems().containsAll(itemset.getItems())) {
-                    support++;
-                }
-            }
+            double support = dataPointLabelIndex.countDataPoints(itemset.getItems());
             // normalize support
             itemset.setSupport(support / dataPoints.size());
         }
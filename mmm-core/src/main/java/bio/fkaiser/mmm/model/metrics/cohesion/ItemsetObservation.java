@@ -0,0 +1,104 @@
+package bio.fkaiser.mmm.model.metrics.cohesion;
+
+import bio.fkaiser.mmm.model.DataPoint;
+import bio.fkaiser.mmm.model.Item;
+import bio.fkaiser.mmm.model.Itemset;
+import de.bioforscher.singa.structure.model.interfaces.LeafSubstructure;
+import de.bioforscher.singa.structure.model.oak.StructuralMotif;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A lightweight observation of an {@link Itemset} in a {@link DataPoint}, given by the sorted positions of the observed {@link Item}s. An
+ * {@link Itemset} with its {@link StructuralMotif} is only materialized on demand via {@link #toItemset()}. Observations are equal if they refer
+ * to the same {@link Item}s of the same {@link DataPoint}.
+ *
+ * @author fk
+ */
+public class ItemsetObservation<LabelType extends Comparable<LabelType>> {
+
+    private final DataPoint<LabelType> dataPoint;
+    private final int[] itemIndices;
+    private final double squaredExtent;
+    private final int hashCode;
+
+    public ItemsetObservation(DataPoint<LabelType> dataPoint, int[] itemIndices, double squaredExtent) {
+        this.dataPoint = dataPoint;
+        this.squaredExtent = squaredExtent;
+        this.itemIndices = itemIndices.clone();
+        Arrays.sort(this.itemIndices);
+        hashCode = 31 * System.identityHashCode(dataPoint) + Arrays.hashCode(this.itemIndices);
+    }
+
+    public DataPoint<LabelType> getDataPoint() {
+        return dataPoint;
+    }
+
+    /**
+     * Returns the sorted positions of the observed {@link Item}s in the {@link DataPoint}.
+     *
+     * @return The positions of the observed {@link Item}s.
+     */
+    public int[] getItemIndices() {
+        return itemIndices;
+    }
+
+    /**
+     * Returns the maximal squared extent, i.e. the maximal squared distance between any two of the observed {@link Item}s.
+     *
+     * @return The maximal squared extent.
+     */
+    public double getSquaredExtent() {
+        return squaredExtent;
+    }
+
+    public List<Item<LabelType>> getItems() {
+        List<Item<LabelType>> dataPointItems = dataPoint.getItems();
+        List<Item<LabelType>> items = new ArrayList<>(itemIndices.length);
+        for (int itemIndex : itemIndices) {
+            items.add(dataPointItems.get(itemIndex));
+        }
+        return items;
+    }
+
+    /**
+     * Materializes this observation as {@link Itemset} with its {@link StructuralMotif}. The {@link LeafSubstructure}s of the
+     * {@link StructuralMotif} are sorted based on the natural ordering of the labels of their {@link Item}s.
+     *
+     * @return The observed {@link Itemset}.
+     */
+    public Itemset<LabelType> toItemset() {
+        List<Item<LabelType>> items = getItems();
+
+        // leaf substructures are sorted based on the natural ordering of the (possibly mapped) labels of their items
+        TreeMap<LabelType, LeafSubstructure<?>> labelMap = new TreeMap<>();
+        for (Item<LabelType> item : items) {
+            item.getLeafSubstructure().ifPresent(leafSubstructure -> labelMap.put(item.getLabel(), leafSubstructure));
+        }
+        List<LeafSubstructure<?>> orderedLeafSubstructures = new ArrayList<>(labelMap.values());
+        StructuralMotif structuralMotif = StructuralMotif.fromLeafSubstructures(orderedLeafSubstructures);
+
+        return new Itemset<>(new TreeSet<>(items), structuralMotif, dataPoint.getDataPointIdentifier());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ItemsetObservation<?> that = (ItemsetObservation<?>) o;
+        return dataPoint == that.dataPoint && Arrays.equals(itemIndices, that.itemIndices);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return getItems().stream()
+                         .map(Item::toString)
+                         .collect(Collectors.joining("-", dataPoint.getDataPointIdentifier() + "{", "}"));
+    }
+}
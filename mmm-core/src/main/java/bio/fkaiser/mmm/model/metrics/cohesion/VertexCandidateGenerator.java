@@ -3,8 +3,8 @@ package bio.fkaiser.mmm.model.metrics.cohesion;
 import bio.fkaiser.mmm.model.DataPoint;
 import bio.fkaiser.mmm.model.Item;
 import bio.fkaiser.mmm.model.Itemset;
-import de.bioforscher.singa.mathematics.matrices.LabeledSymmetricMatrix;
-import de.bioforscher.singa.structure.model.interfaces.LeafSubstructure;
+import bio.fkaiser.mmm.model.NearestItemTable;
+import bio.fkaiser.mmm.model.SquaredDistances;
 import de.bioforscher.singa.structure.model.oak.StructuralMotif;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,98 +26,141 @@ public class VertexCandidateGenerator<LabelType extends Comparable<LabelType>> {
     private static final Logger logger = LoggerFactory.getLogger(VertexCandidateGenerator.class);
     private final List<Item<LabelType>> items;
     private final DataPoint<LabelType> dataPoint;
-    private final LabeledSymmetricMatrix<Item<LabelType>> squaredDistanceMatrix;
+    private final SquaredDistances squaredDistances;
     private final boolean vertexOne;
 
-    public VertexCandidateGenerator(Itemset<LabelType> itemset, DataPoint<LabelType> dataPoint, LabeledSymmetricMatrix<Item<LabelType>> squaredDistanceMatrix, boolean vertexOne) {
-        // TODO according to Zhou et al. 2007 this list is sorted (VertexOne: descending support, VertexAll: ascending support)
+    public VertexCandidateGenerator(Itemset<LabelType> itemset, DataPoint<LabelType> dataPoint, SquaredDistances squaredDistances, boolean vertexOne) {
         items = new ArrayList<>(itemset.getItems());
         this.dataPoint = dataPoint;
-        this.squaredDistanceMatrix = squaredDistanceMatrix;
+        this.squaredDistances = squaredDistances;
         this.vertexOne = vertexOne;
     }
 
-    private static <LabelType extends Comparable<LabelType>> boolean isRedundant(Itemset<LabelType> candidate, List<Itemset<LabelType>> candidates) {
-        List<LeafSubstructure<?>> candidateLeafSubstructures = candidate.getStructuralMotif()
-                                                                        .orElseThrow(() -> new VertexCandidateGeneratorException("no structural motif found during redundancy check"))
-                                                                        .getAllLeafSubstructures();
-        for (Itemset<LabelType> reference : candidates) {
-            List<LeafSubstructure<?>> referenceLeafSubstructures = reference.getStructuralMotif()
-                                                                            .orElseThrow(() -> new VertexCandidateGeneratorException("no structural motif found during redundancy check"))
-                                                                            .getAllLeafSubstructures();
-            if (candidateLeafSubstructures.equals(referenceLeafSubstructures)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Generates all candidates and materializes them as {@link Itemset}s with their {@link StructuralMotif}s.
+     *
+     * @return The candidate {@link Itemset}s.
+     */
+    public List<Itemset<LabelType>> generateCandidates() {
+        return generateObservations().stream()
+                                     .map(ItemsetObservation::toItemset)
+                                     .collect(Collectors.toList());
     }
 
-    public List<Itemset<LabelType>> generateCandidates() {
-        // collect all matching data point items
-        List<List<Item<LabelType>>> matchingDataPointItems = new ArrayList<>();
-        for (Item<LabelType> item : items) {
-            matchingDataPointItems.add(dataPoint.getItems().stream()
-                                                .filter(dataPointItem -> dataPointItem.equals(item))
-                                                .collect(Collectors.toList()));
-        }
+    /**
+     * Generates all candidates as lightweight {@link ItemsetObservation}s. Redundant candidates that consist of the same {@link Item}s are
+     * omitted.
+     *
+     * @return The non-redundant {@link ItemsetObservation}s in the order of their generation.
+     */
+    public List<ItemsetObservation<LabelType>> generateObservations() {
+        return generateObservations(Double.POSITIVE_INFINITY, false);
+    }
+
+    /**
+     * Generates all candidates with a maximal squared extent below the given limit as lightweight {@link ItemsetObservation}s. Partial
+     * candidates are abandoned as soon as their extent reaches the limit.
+     *
+     * @param squaredExtentLimit The exclusive upper limit of the maximal squared extent.
+     * @return The non-redundant {@link ItemsetObservation}s below the limit in the order of their generation.
+     */
+    public List<ItemsetObservation<LabelType>> generateObservations(double squaredExtentLimit) {
+        return generateObservations(squaredExtentLimit, false);
+    }
+
+    /**
+     * Determines the candidate with minimal maximal squared extent. The extent of the best candidate found so far is used as bound, such that
+     * partial candidates are abandoned as soon as they cannot improve it. Of several candidates with minimal extent the first generated one is
+     * returned.
+     *
+     * @return The {@link ItemsetObservation} with minimal extent or empty if the {@link Itemset} does not occur in the {@link DataPoint}.
+     */
+    public Optional<ItemsetObservation<LabelType>> findMinimalExtentObservation() {
+        List<ItemsetObservation<LabelType>> observations = generateObservations(Double.POSITIVE_INFINITY, true);
+        return observations.isEmpty() ? Optional.empty() : Optional.of(observations.get(observations.size() - 1));
+    }
+
+    /**
+     * Generates candidates with a maximal squared extent below the given limit.
+     *
+     * @param squaredExtentLimit The exclusive upper limit of the maximal squared extent.
+     * @param tightenLimit       If true, the limit is lowered to the extent of each accepted candidate, such that the last candidate has minimal
+     *                           extent.
+     * @return The accepted {@link ItemsetObservation}s in the order of their generation.
+     */
+    private List<ItemsetObservation<LabelType>> generateObservations(double squaredExtentLimit, boolean tightenLimit) {
+        // determine the labels of all items in the order of their selectivity
+        List<LabelType> labels = planLookups();
 
         // return empty list if items are missing in the data point
-        if (matchingDataPointItems.stream().anyMatch(List::isEmpty)) {
+        if (labels.isEmpty()) {
             return new ArrayList<>();
         }
 
-        // initialize empty candidate list
-        List<Itemset<LabelType>> candidates = new ArrayList<>();
+        // initialize empty candidate storage, which preserves the order of generation
+        Set<ItemsetObservation<LabelType>> candidates = new LinkedHashSet<>();
 
         // iterate over all matching data point items
-        for (int i = 0; i < matchingDataPointItems.size(); i++) {
+        for (int i = 0; i < labels.size(); i++) {
 
             // define list one
-            List<Item<LabelType>> listOne = matchingDataPointItems.get(i);
+            LabelType labelOne = labels.get(i);
+            int[] listOne = dataPoint.getItemIndices(labelOne);
 
-            outerLoop:
-            for (Item<LabelType> itemOne : listOne) {
-                List<Item<LabelType>> candidateItems = new ArrayList<>();
-                candidateItems.add(itemOne);
-                for (int j = 0; j < matchingDataPointItems.size() - 1; j++) {
+            // obtain the closest items of all other labels for each item of list one, shared across itemsets and epochs
+            NearestItemTable[] nearestItemTables = new NearestItemTable[labels.size() - 1];
+            for (int j = 0; j < labels.size() - 1; j++) {
 
-                    // determine pointer for back reference in outer loop
-                    int pointer = (j + i + 1) % matchingDataPointItems.size();
+                // determine pointer for back reference in outer loop
+                int pointer = (j + i + 1) % labels.size();
 
-                    List<Item<LabelType>> listTwo = matchingDataPointItems.get(pointer);
+                nearestItemTables[j] = dataPoint.getNearestItemTable(labelOne, labels.get(pointer), squaredDistances);
+            }
+
+            candidateLoop:
+            for (int occurrence = 0; occurrence < listOne.length; occurrence++) {
+                int[] candidateItemIndices = new int[labels.size()];
+                candidateItemIndices[0] = listOne[occurrence];
+                float squaredExtent = 0.0f;
+                for (int j = 0; j < labels.size() - 1; j++) {
 
                     // determine closest item of list
-                    Item<LabelType> closestItem = findClosestItem(itemOne, listTwo).orElseThrow(() -> new VertexCandidateGeneratorException("failed to determine closest item"));
+                    int closestItemIndex = nearestItemTables[j].getClosestItemIndex(occurrence);
+                    if (closestItemIndex == -1) {
+                        throw new VertexCandidateGeneratorException("failed to determine closest item");
+                    }
+
+                    // update extent of partial candidate and abandon it if the limit is reached
+                    float squaredDistanceToItemOne = nearestItemTables[j].getSquaredDistance(occurrence);
+                    if (squaredDistanceToItemOne > squaredExtent) {
+                        squaredExtent = squaredDistanceToItemOne;
+                    }
+                    for (int k = 1; k <= j; k++) {
+                        float squaredDistance = squaredDistances.getSquaredDistance(candidateItemIndices[k], closestItemIndex);
+                        if (squaredDistance > squaredExtent) {
+                            squaredExtent = squaredDistance;
+                        }
+                    }
+                    if (squaredExtent >= squaredExtentLimit) {
+                        continue candidateLoop;
+                    }
 
                     // add closest item to candidate
-                    candidateItems.add(closestItem);
+                    candidateItemIndices[j + 1] = closestItemIndex;
                 }
 
-                // create new candidate
-                List<LeafSubstructure<?>> leafSubstructures = candidateItems.stream()
-                                                                            .map(Item::getLeafSubstructure)
-                                                                            .filter(Optional::isPresent)
-                                                                            .map(Optional::get)
-                                                                            .collect(Collectors.toList());
-
-                // leaf substructures are sorted based on the natural ordering of their labels
-                TreeMap<LabelType, LeafSubstructure<?>> labelMap = new TreeMap<>();
-                for (int k = 0; k < candidateItems.size(); k++) {
-                    labelMap.put(candidateItems.get(k).getLabel(), leafSubstructures.get(k));
+                // single-item candidates are not checked during assembly
+                if (squaredExtent >= squaredExtentLimit) {
+                    continue;
                 }
-                List<LeafSubstructure<?>> orderedLeafSubstructures = labelMap.entrySet().stream()
-                                                                             .map(Map.Entry::getValue)
-                                                                             .collect(Collectors.toList());
-                // sort leaves based on three letter code
-                // FIXME this has to be adapted when mapping rule is used such that sorting is based on mapped labels
-//                leafSubstructures.sort(Comparator.comparing(leafSubstructure -> leafSubstructure.getFamily().getThreeLetterCode()));
-                StructuralMotif structuralMotif = StructuralMotif.fromLeafSubstructures(orderedLeafSubstructures);
-
-                Itemset<LabelType> candidate = new Itemset<>(new TreeSet<>(candidateItems), structuralMotif, dataPoint.getDataPointIdentifier());
-                logger.trace("generated candidate {}", candidate);
-
-                if (!isRedundant(candidate, candidates)) {
-                    candidates.add(candidate);
+
+                // create new candidate, redundant candidates are ignored
+                ItemsetObservation<LabelType> candidate = new ItemsetObservation<>(dataPoint, candidateItemIndices, squaredExtent);
+                if (candidates.add(candidate)) {
+                    logger.trace("generated candidate {}", candidate);
+                    if (tightenLimit) {
+                        squaredExtentLimit = squaredExtent;
+                    }
                 }
             }
 
@@ -126,26 +169,25 @@ public class VertexCandidateGenerator<LabelType extends Comparable<LabelType>> {
                 break;
             }
         }
-        return candidates;
+        return new ArrayList<>(candidates);
     }
 
     /**
-     * Returns the closest {@link Item} of the given list of {@link Item}s in respect to the reference {@link Item}.
+     * Plans the lookups of {@link Item}s in the {@link DataPoint}, ordered ascending by the number of occurrences of their labels. Hence, the
+     * rarest label is used as anchor with VertexOne, and the work scales with its number of occurrences instead of that of the first label. The
+     * occurrence counts are served from the label index of the {@link DataPoint}. Labels with equal counts keep their natural order.
      *
-     * @param reference The reference {@link Item} to which the closest {@link Item} should be determined.
-     * @param items     The candidate {@link Item}s.
-     * @return The closest {@link Item} if any.
+     * @return The labels of all {@link Item}s in lookup order or an empty list if any label does not occur in the {@link DataPoint}.
      */
-    private Optional<Item<LabelType>> findClosestItem(Item<LabelType> reference, List<Item<LabelType>> items) {
-        Item<LabelType> closestItem = null;
-        double closestSquaredDistance = Double.MAX_VALUE;
+    private List<LabelType> planLookups() {
+        List<LabelType> labels = new ArrayList<>(items.size());
         for (Item<LabelType> item : items) {
-            double squaredDistance = squaredDistanceMatrix.getValueForLabel(reference, item);
-            if (squaredDistance < closestSquaredDistance) {
-                closestSquaredDistance = squaredDistance;
-                closestItem = item;
+            if (dataPoint.getItemCount(item.getLabel()) == 0) {
+                return Collections.emptyList();
             }
+            labels.add(item.getLabel());
         }
-        return Optional.ofNullable(closestItem);
+        labels.sort(Comparator.comparingInt(dataPoint::getItemCount));
+        return labels;
     }
 }
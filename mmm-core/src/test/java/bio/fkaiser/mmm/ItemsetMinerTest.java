@@ -3,6 +3,8 @@ package bio.fkaiser.mmm;
 import bio.fkaiser.mmm.model.DataPoint;
 import bio.fkaiser.mmm.model.DataPointIdentifier;
 import bio.fkaiser.mmm.model.Item;
+import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.LabelDictionary;
 import bio.fkaiser.mmm.model.configurations.ItemsetMinerConfiguration;
 import bio.fkaiser.mmm.model.configurations.metrics.SupportMetricConfiguration;
 import bio.fkaiser.mmm.model.metrics.EvaluationMetric;
@@ -10,10 +12,13 @@ import bio.fkaiser.mmm.model.metrics.SupportMetric;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -59,4 +64,64 @@ public class ItemsetMinerTest {
                                .filter(itemset -> itemset.getItems().size() == 2)
                                .anyMatch(itemset -> itemset.getItems().contains(new Item<String>("A"))));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldJoinCandidatesLikePairwiseJoin() {
+
+        // all 2-itemsets of the labels A, B, C, D, and E
+        List<String> labels = Stream.of("A", "B", "C", "D", "E").collect(Collectors.toList());
+        LabelDictionary<String> labelDictionary = new LabelDictionary<>(labels);
+        Set<Itemset<String>> previousCandidates = new HashSet<>();
+        for (int i = 0; i < labels.size(); i++) {
+            for (int j = i + 1; j < labels.size(); j++) {
+                previousCandidates.add(Itemset.of(new Item<>(labels.get(i)), new Item<>(labels.get(j))));
+            }
+        }
+
+        // reference is the union of all pairs of previous candidates differing in exactly one item
+        Set<Itemset<String>> referenceCandidates = new HashSet<>();
+        for (Itemset<String> itemsetOne : previousCandidates) {
+            for (Itemset<String> itemsetTwo : previousCandidates) {
+                Set<Item<String>> items = new HashSet<>(itemsetOne.getItems());
+                items.addAll(itemsetTwo.getItems());
+                if (items.size() == 3) {
+                    referenceCandidates.add(Itemset.of(items));
+                }
+            }
+        }
+        assertEquals(referenceCandidates, ItemsetMiner.joinCandidates(previousCandidates, labelDictionary));
+
+        // candidates with infrequent subsets should be discarded
+        previousCandidates.remove(Itemset.of(new Item<>("A"), new Item<>("B")));
+        assertFalse(ItemsetMiner.joinCandidates(previousCandidates, labelDictionary).stream()
+                                .anyMatch(itemset -> itemset.getItems().contains(new Item<String>("A")) && itemset.getItems().contains(new Item<String>("B"))));
+    }
+
+    @Test
+    public void shouldPruneCandidatesLikeLinearScan() {
+
+        // all 3-itemsets of the labels A, B, C, D, E, and F
+        List<String> labels = Stream.of("A", "B", "C", "D", "E", "F").collect(Collectors.toList());
+        Set<Itemset<String>> candidates = new HashSet<>();
+        for (int i = 0; i < labels.size(); i++) {
+            for (int j = i + 1; j < labels.size(); j++) {
+                for (int k = j + 1; k < labels.size(); k++) {
+                    candidates.add(Itemset.of(new Item<>(labels.get(i)), new Item<>(labels.get(j)), new Item<>(labels.get(k))));
+                }
+            }
+        }
+
+        Set<Itemset<String>> removedCandidates = new HashSet<>();
+        removedCandidates.add(Itemset.of(new Item<>("A"), new Item<>("C")));
+        removedCandidates.add(Itemset.of(new Item<>("B"), new Item<>("F")));
+        removedCandidates.add(Itemset.of(new Item<>("D"), new Item<>("E")));
+
+        // reference is the linear scan over all removed candidates
+        Set<Itemset<String>> referenceCandidates = new HashSet<>(candidates);
+        referenceCandidates.removeIf(candidate -> removedCandidates.stream()
+                                                                  .anyMatch(removedCandidate -> candidate.getItems().containsAll(removedCandidate.getItems())));
+
+        ItemsetMiner.removeCandidatesContaining(candidates, removedCandidates, new LabelDictionary<>(labels));
+        assertEquals(referenceCandidates, candidates);
+    }
+}
@@ -0,0 +1,53 @@
+package bio.fkaiser.mmm.model;
+
+import bio.fkaiser.mmm.model.metrics.CohesionMetric;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author fk
+ */
+public class DistributionTest {
+
+    @Test
+    public void shouldCalculateMoments() {
+        Distribution distribution = new Distribution(CohesionMetric.class);
+        double[] values = {2.0, 4.0, 4.0, 4.0, 5.0, 5.0, 7.0, 9.0};
+        for (double value : values) {
+            distribution.addObservationValue(value);
+        }
+        assertEquals(8, distribution.getObservationCount());
+        assertEquals(5.0, distribution.getMean(), 1E-9);
+        assertEquals(32.0 / 7.0, distribution.getVariance(), 1E-9);
+        assertEquals(2.0, distribution.getPopulationStandardDeviation(), 1E-9);
+        assertEquals(values.length, distribution.getObservations().length);
+    }
+
+    @Test
+    public void shouldBoundStoredObservations() {
+        Distribution distribution = new Distribution(CohesionMetric.class, 10);
+        for (int i = 0; i < 1000; i++) {
+            distribution.addObservationValue(i);
+        }
+        assertEquals(1000, distribution.getObservationCount());
+        assertEquals(10, distribution.getStoredObservationCount());
+        assertEquals(10, distribution.getObservations().length);
+        assertEquals(499.5, distribution.getMean(), 1E-9);
+    }
+
+    @Test
+    public void shouldKeepMomentsOfBoundedDistribution() {
+        Distribution boundedDistribution = new Distribution(CohesionMetric.class, 10);
+        Distribution distribution = new Distribution(CohesionMetric.class);
+        for (int i = 0; i < 1000; i++) {
+            double value = Math.sin(i) * i;
+            boundedDistribution.addObservationValue(value);
+            distribution.addObservationValue(value);
+        }
+        assertEquals(distribution.getObservationCount(), boundedDistribution.getObservationCount());
+        assertEquals(distribution.getMean(), boundedDistribution.getMean(), 0.0);
+        assertEquals(distribution.getVariance(), boundedDistribution.getVariance(), 0.0);
+        assertEquals(distribution.getPopulationStandardDeviation(), boundedDistribution.getPopulationStandardDeviation(), 0.0);
+    }
+}
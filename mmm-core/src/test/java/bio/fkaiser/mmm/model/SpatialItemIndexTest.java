@@ -0,0 +1,101 @@
+package bio.fkaiser.mmm.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author fk
+ */
+public class SpatialItemIndexTest {
+
+    private static final int ITEM_COUNT = 600;
+
+    @Test
+    public void shouldFindClosestItemLikeLinearSearchForRandomPositions() {
+        Random random = new Random(42);
+        double[][] positions = new double[ITEM_COUNT][];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new double[]{random.nextDouble() * 80, random.nextDouble() * 60, random.nextDouble() * 40};
+        }
+        assertClosestItemsEqual(positions, random);
+    }
+
+    @Test
+    public void shouldFindClosestItemLikeLinearSearchForLatticePositions() {
+        // integer coordinates cause many ties between candidates
+        Random random = new Random(42);
+        double[][] positions = new double[ITEM_COUNT][];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new double[]{random.nextInt(12) * 2.0, random.nextInt(12) * 2.0, random.nextInt(6) * 4.0};
+        }
+        assertClosestItemsEqual(positions, random);
+    }
+
+    @Test
+    public void shouldFindClosestItemLikeLinearSearchWithoutPositions() {
+        Random random = new Random(42);
+        double[][] positions = new double[ITEM_COUNT][];
+        for (int i = 0; i < positions.length; i++) {
+            // every third item has no position
+            if (i % 3 != 0) {
+                positions[i] = new double[]{random.nextInt(20), random.nextInt(20), random.nextInt(20)};
+            }
+        }
+        assertClosestItemsEqual(positions, random);
+
+        // candidates without any position
+        int[] itemIndices = IntStream.range(0, ITEM_COUNT).filter(i -> i % 3 == 0).toArray();
+        SpatialItemIndex spatialItemIndex = new SpatialItemIndex(positions, null, SpatialItemIndex.DEFAULT_CELL_SIZE);
+        SquaredDistanceMatrix squaredDistanceMatrix = SquaredDistanceMatrix.of(positions, null);
+        assertEquals(squaredDistanceMatrix.findClosestItem(1, itemIndices), spatialItemIndex.findClosestItem(1, itemIndices));
+    }
+
+    @Test
+    public void shouldFindClosestItemLikeLinearSearchForTieOnShellBoundary() {
+        // the reference is assigned to cell 3 due to rounding, although it lies exactly on the boundary to cell 4
+        double[][] positions = new double[42][];
+        positions[0] = new double[]{4.1, 0.0, 0.0};
+        // the tied candidate with smaller index lies exactly one shell away in cell 5, the other one in cell 2
+        positions[1] = new double[]{4.1 + 1.0, 0.0, 0.0};
+        positions[2] = new double[]{4.1 - 1.0, 0.0, 0.0};
+        // distant candidates, the first determines the origin of the grid
+        positions[3] = new double[]{0.1, 0.0, 0.0};
+        for (int i = 4; i < positions.length; i++) {
+            positions[i] = new double[]{6.1 + i, 0.0, 0.0};
+        }
+        int[] itemIndices = IntStream.range(1, positions.length).toArray();
+        SpatialItemIndex spatialItemIndex = new SpatialItemIndex(positions, null, 1.0);
+        assertEquals(1, SquaredDistanceMatrix.of(positions, null).findClosestItem(0, itemIndices));
+        assertEquals(1, spatialItemIndex.findClosestItem(0, itemIndices));
+    }
+
+    /**
+     * Compares the closest items determined by the {@link SpatialItemIndex} with the linear search of a {@link SquaredDistanceMatrix} for all
+     * items as reference and random sets of candidates.
+     *
+     * @param positions The positions of the items.
+     * @param random    The source of randomness to select candidates.
+     */
+    private static void assertClosestItemsEqual(double[][] positions, Random random) {
+        SquaredDistanceMatrix squaredDistanceMatrix = SquaredDistanceMatrix.of(positions, null);
+        for (double cellSize : new double[]{1.0, SpatialItemIndex.DEFAULT_CELL_SIZE, 25.0}) {
+            SpatialItemIndex spatialItemIndex = new SpatialItemIndex(positions, null, cellSize);
+            for (int candidateCount : new int[]{10, 50, 300}) {
+                int[] itemIndices = random.ints(0, positions.length)
+                                          .distinct()
+                                          .limit(candidateCount)
+                                          .sorted()
+                                          .toArray();
+                for (int referenceIndex = 0; referenceIndex < positions.length; referenceIndex++) {
+                    assertEquals("closest item of " + referenceIndex + " with cell size " + cellSize,
+                                 squaredDistanceMatrix.findClosestItem(referenceIndex, itemIndices),
+                                 spatialItemIndex.findClosestItem(referenceIndex, itemIndices));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package bio.fkaiser.mmm.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author fk
+ */
+public class SquaredDistanceCacheTest {
+
+    private static DataPoint<String> createDataPoint(String pdbIdentifier, int itemCount) {
+        List<Item<String>> items = IntStream.range(0, itemCount)
+                                            .mapToObj(i -> new Item<>("A"))
+                                            .collect(Collectors.toList());
+        return new DataPoint<>(items, new DataPointIdentifier(pdbIdentifier));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        DataPoint<String> dataPoint1 = createDataPoint("1abc", 10);
+        DataPoint<String> dataPoint2 = createDataPoint("2abc", 10);
+        DataPoint<String> dataPoint3 = createDataPoint("3abc", 10);
+        SquaredDistanceCache squaredDistanceCache = new SquaredDistanceCache();
+        SquaredDistances squaredDistances1 = squaredDistanceCache.obtain(dataPoint1, null);
+        long memorySize = squaredDistances1.getMemorySize();
+        squaredDistanceCache.setMaximalSize(2 * memorySize);
+
+        SquaredDistances squaredDistances2 = squaredDistanceCache.obtain(dataPoint2, null);
+        // use first data point such that the second one is least recently used
+        assertSame(squaredDistances1, squaredDistanceCache.obtain(dataPoint1, null));
+        squaredDistanceCache.obtain(dataPoint3, null);
+        assertEquals(2 * memorySize, squaredDistanceCache.getSize());
+        assertSame(squaredDistances1, squaredDistanceCache.obtain(dataPoint1, null));
+        assertNotSame(squaredDistances2, squaredDistanceCache.obtain(dataPoint2, null));
+        assertEquals(2 * memorySize, squaredDistanceCache.getSize());
+
+        squaredDistanceCache.setMaximalSize(memorySize);
+        assertEquals(memorySize, squaredDistanceCache.getSize());
+    }
+
+    @Test
+    public void shouldSeparateDataPointsWithDifferentItems() {
+        SquaredDistanceCache squaredDistanceCache = new SquaredDistanceCache();
+        DataPoint<String> dataPoint = createDataPoint("1abc", 10);
+        SquaredDistances squaredDistances = squaredDistanceCache.obtain(dataPoint, null);
+        assertEquals(10, squaredDistances.size());
+        assertEquals(12, squaredDistanceCache.obtain(createDataPoint("1abc", 12), null).size());
+        // views with permuted labels share the distances
+        assertSame(squaredDistances, squaredDistanceCache.obtain(dataPoint.getPermutedView(IntStream.range(0, 10).map(i -> 9 - i).toArray()), null));
+    }
+
+    @Test
+    public void shouldCalculateOnceForConcurrentRequests() throws InterruptedException, ExecutionException {
+        SquaredDistanceCache squaredDistanceCache = new SquaredDistanceCache();
+        DataPoint<String> dataPoint = createDataPoint("1abc", 2000);
+        int threadCount = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<SquaredDistances>> results = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            results.add(executorService.submit(() -> {
+                startSignal.await();
+                return squaredDistanceCache.obtain(dataPoint, null);
+            }));
+        }
+        startSignal.countDown();
+        SquaredDistances squaredDistances = results.get(0).get();
+        for (Future<SquaredDistances> result : results) {
+            assertSame(squaredDistances, result.get());
+        }
+        executorService.shutdown();
+        assertEquals(squaredDistances.getMemorySize(), squaredDistanceCache.getSize());
+    }
+
+    @Test
+    public void shouldStayWithinMaximalSizeForConcurrentRequests() throws InterruptedException, ExecutionException {
+        List<DataPoint<String>> dataPoints = IntStream.range(0, 10)
+                                                      .mapToObj(i -> createDataPoint((i + 1) + "abc", 50))
+                                                      .collect(Collectors.toList());
+        SquaredDistanceCache squaredDistanceCache = new SquaredDistanceCache();
+        long memorySize = squaredDistanceCache.obtain(dataPoints.get(0), null).getMemorySize();
+        squaredDistanceCache.setMaximalSize(3 * memorySize);
+        int threadCount = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            int offset = i;
+            results.add(executorService.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    DataPoint<String> dataPoint = dataPoints.get((offset + j * 7) % dataPoints.size());
+                    assertEquals(50, squaredDistanceCache.obtain(dataPoint, null).size());
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executorService.shutdown();
+        assertTrue(squaredDistanceCache.getSize() <= 3 * memorySize);
+        assertEquals(0, squaredDistanceCache.getSize() % memorySize);
+    }
+}
@@ -0,0 +1,58 @@
+package bio.fkaiser.mmm.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author fk
+ */
+public class SquaredDistanceMatrixTest {
+
+    @Test
+    public void shouldAddressPackedTriangleLikeFullMatrix() {
+        Random random = new Random(42);
+        double[][] positions = new double[37][];
+        for (int i = 0; i < positions.length; i++) {
+            // some items have no position
+            if (i % 9 != 4) {
+                positions[i] = new double[]{random.nextDouble() * 50, random.nextDouble() * 50, random.nextDouble() * 50};
+            }
+        }
+        SquaredDistanceMatrix squaredDistanceMatrix = SquaredDistanceMatrix.of(positions, null);
+        assertEquals(positions.length, squaredDistanceMatrix.size());
+        assertEquals(4L * positions.length * (positions.length - 1) / 2, squaredDistanceMatrix.getMemorySize());
+        for (int i = 0; i < positions.length; i++) {
+            for (int j = 0; j < positions.length; j++) {
+                float expectedSquaredDistance;
+                if (i == j) {
+                    expectedSquaredDistance = 0.0f;
+                } else if (positions[i] == null || positions[j] == null) {
+                    expectedSquaredDistance = Float.NaN;
+                } else {
+                    double dx = positions[i][0] - positions[j][0];
+                    double dy = positions[i][1] - positions[j][1];
+                    double dz = positions[i][2] - positions[j][2];
+                    expectedSquaredDistance = (float) (dx * dx + dy * dy + dz * dz);
+                }
+                assertEquals(expectedSquaredDistance, squaredDistanceMatrix.getSquaredDistance(i, j), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void shouldFallBackToFirstCandidateWithoutPositions() {
+        double[][] positions = {{0.0, 0.0, 0.0}, null, null, {1.0, 0.0, 0.0}};
+        SquaredDistanceMatrix squaredDistanceMatrix = SquaredDistanceMatrix.of(positions, null);
+        assertEquals(3, squaredDistanceMatrix.findClosestItem(0, new int[]{1, 2, 3}));
+        assertEquals(1, squaredDistanceMatrix.findClosestItem(0, new int[]{1, 2}));
+        assertEquals(-1, squaredDistanceMatrix.findClosestItem(0, new int[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTooManyItems() {
+        SquaredDistanceMatrix.of(new double[SquaredDistanceMatrix.MAXIMAL_SIZE + 1][], null);
+    }
+}
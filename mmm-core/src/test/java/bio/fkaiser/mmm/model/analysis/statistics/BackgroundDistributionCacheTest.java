@@ -0,0 +1,81 @@
+package bio.fkaiser.mmm.model.analysis.statistics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author fk
+ */
+public class BackgroundDistributionCacheTest {
+
+    private static final String CONTENT_HASH = "0123456789abcdef";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRestoreWrittenCache() {
+        Path cacheLocation = folder.getRoot().toPath();
+        BackgroundDistributionCache<String> backgroundDistributionCache = new BackgroundDistributionCache<>(cacheLocation, CONTENT_HASH);
+        double[] roundValues = {1.5, Double.NaN, -3.25};
+        assertTrue(backgroundDistributionCache.update("A-B", roundValues));
+        assertTrue(backgroundDistributionCache.update("A-C", new double[]{0.0}));
+        // fewer rounds should never replace cached values
+        assertFalse(backgroundDistributionCache.update("A-B", new double[]{2.0}));
+        backgroundDistributionCache.write();
+
+        BackgroundDistributionCache<String> restoredCache = new BackgroundDistributionCache<>(cacheLocation, CONTENT_HASH);
+        assertArrayEquals(roundValues, restoredCache.getCachedRoundValues("A-B"), 0.0);
+        assertArrayEquals(new double[]{0.0}, restoredCache.getCachedRoundValues("A-C"), 0.0);
+        assertNull(new BackgroundDistributionCache<String>(cacheLocation, "fedcba9876543210").getCachedRoundValues("A-B"));
+    }
+
+    @Test
+    public void shouldTreatCorruptCacheAsMiss() throws IOException {
+        Path cacheLocation = folder.getRoot().toPath();
+        BackgroundDistributionCache<String> backgroundDistributionCache = new BackgroundDistributionCache<>(cacheLocation, CONTENT_HASH);
+        Path cacheFilePath = backgroundDistributionCache.getCacheFilePath();
+
+        // negative, oversized, and truncated round counts
+        for (int roundCount : new int[]{-1, Integer.MAX_VALUE, 2}) {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream)) {
+                dataOutputStream.writeInt(1);
+                dataOutputStream.writeInt(2);
+                dataOutputStream.writeUTF("A-C");
+                dataOutputStream.writeInt(1);
+                dataOutputStream.writeDouble(0.0);
+                dataOutputStream.writeUTF("A-B");
+                dataOutputStream.writeInt(roundCount);
+                dataOutputStream.writeDouble(1.0);
+            }
+            Files.write(cacheFilePath, byteArrayOutputStream.toByteArray());
+            assertNull(new BackgroundDistributionCache<String>(cacheLocation, CONTENT_HASH).getCachedRoundValues("A-C"));
+        }
+
+        // invalid entry count
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream)) {
+            dataOutputStream.writeInt(1);
+            dataOutputStream.writeInt(-7);
+        }
+        Files.write(cacheFilePath, byteArrayOutputStream.toByteArray());
+        assertNull(new BackgroundDistributionCache<String>(cacheLocation, CONTENT_HASH).getCachedRoundValues("A-C"));
+
+        // arbitrary bytes
+        Files.write(cacheFilePath, new byte[]{0, 0, 0, 1, 127, 3});
+        assertNull(new BackgroundDistributionCache<String>(cacheLocation, CONTENT_HASH).getCachedRoundValues("A-C"));
+    }
+}
@@ -0,0 +1,154 @@
+package bio.fkaiser.mmm.model.analysis.statistics;
+
+import bio.fkaiser.mmm.model.Distribution;
+import bio.fkaiser.mmm.model.analysis.statistics.SignificanceEstimator.Significance;
+import bio.fkaiser.mmm.model.metrics.CohesionMetric;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author fk
+ */
+public class SignificanceEstimatorTest {
+
+    /**
+     * standardized score of a significance cutoff of 0.05
+     */
+    private static final double CRITICAL_SCORE = -1.6448536269514722;
+    /**
+     * standard normal quantile of a confidence of 0.99
+     */
+    private static final double CONFIDENCE_QUANTILE = 2.5758293035489004;
+    private static final int SAMPLE_SIZE = 1000;
+    private static final int BATCH_SIZE = 50;
+    /**
+     * standard normal background values per round
+     */
+    private static final double[] ROUND_VALUES = new double[SAMPLE_SIZE];
+
+    static {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUND_VALUES.length; i++) {
+            ROUND_VALUES[i] = random.nextGaussian();
+        }
+    }
+
+    @Test
+    public void shouldKeepSignificancesWithEqualPValues() {
+        TreeMap<Significance, String> significantItemsets = new TreeMap<>();
+        significantItemsets.put(new Significance(0.0, 0.5, 0), "A-B");
+        significantItemsets.put(new Significance(0.0, 0.5, 1), "A-C");
+        significantItemsets.put(new Significance(0.0, 0.8, 2), "B-C");
+        assertEquals(3, significantItemsets.size());
+        // better fitting background distribution first, then ranking
+        assertEquals("B-C", significantItemsets.firstEntry().getValue());
+        assertEquals("A-C", significantItemsets.lastEntry().getValue());
+    }
+
+    @Test
+    public void shouldStopAtTopK() {
+        List<Integer> rankedItemsets = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        List<List<Integer>> sampledChunks = new ArrayList<>();
+        // every odd itemset is significant
+        int evaluatedItemsets = SignificanceEstimator.evaluateInRankedOrder(rankedItemsets, 3, -1, sampledChunks::add, rank -> rank % 2 == 1);
+        assertEquals(6, evaluatedItemsets);
+        assertEquals(2, sampledChunks.size());
+        assertEquals(rankedItemsets.subList(0, 3), sampledChunks.get(0));
+        assertEquals(rankedItemsets.subList(3, 6), sampledChunks.get(1));
+    }
+
+    @Test
+    public void shouldCountEveryAcceptedItemsetTowardsTopK() {
+        List<Integer> rankedItemsets = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        TreeMap<Significance, Integer> significantItemsets = new TreeMap<>();
+        // all itemsets are significant with equal p-values
+        int evaluatedItemsets = SignificanceEstimator.evaluateInRankedOrder(rankedItemsets, 4, -1, chunk -> {
+        }, rank -> significantItemsets.put(new Significance(0.0, 1.0, rank), rank) == null);
+        assertEquals(4, evaluatedItemsets);
+        assertEquals(4, significantItemsets.size());
+    }
+
+    @Test
+    public void shouldRespectEvaluationBudget() {
+        List<Integer> rankedItemsets = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        List<Integer> sampledItemsets = new ArrayList<>();
+        int evaluatedItemsets = SignificanceEstimator.evaluateInRankedOrder(rankedItemsets, 5, 7, sampledItemsets::addAll, rank -> false);
+        assertEquals(7, evaluatedItemsets);
+        assertEquals(rankedItemsets.subList(0, 7), sampledItemsets);
+
+        // without limits all itemsets are sampled at once
+        List<List<Integer>> sampledChunks = new ArrayList<>();
+        evaluatedItemsets = SignificanceEstimator.evaluateInRankedOrder(rankedItemsets, -1, -1, sampledChunks::add, rank -> true);
+        assertEquals(10, evaluatedItemsets);
+        assertEquals(1, sampledChunks.size());
+        assertEquals(rankedItemsets, sampledChunks.get(0));
+    }
+
+    @Test
+    public void shouldStopEarlyForClearDecisions() {
+        // observed values far below, far above, and at the cutoff of a standard normal background
+        Map<String, Double> observedValues = new HashMap<>();
+        observedValues.put("significant", -10.0);
+        observedValues.put("insignificant", 10.0);
+        observedValues.put("borderline", CRITICAL_SCORE);
+        Map<String, Distribution> backgroundDistributions = new HashMap<>();
+        SignificanceEstimator.sampleSequentially(new ArrayList<>(observedValues.keySet()), SAMPLE_SIZE, BATCH_SIZE,
+                                                 createRoundSampler(backgroundDistributions),
+                                                 itemset -> SignificanceEstimator.isDecisionStable(observedValues.get(itemset),
+                                                                                                   backgroundDistributions.get(itemset),
+                                                                                                   CRITICAL_SCORE, CONFIDENCE_QUANTILE));
+        assertEquals(BATCH_SIZE, backgroundDistributions.get("significant").getObservationCount());
+        assertEquals(BATCH_SIZE, backgroundDistributions.get("insignificant").getObservationCount());
+        assertTrue(backgroundDistributions.get("borderline").getObservationCount() > BATCH_SIZE);
+    }
+
+    @Test
+    public void shouldReproduceFixedSampling() {
+        List<String> itemsets = Arrays.asList("significant", "insignificant");
+        List<Integer> requestedRounds = new ArrayList<>();
+        Map<String, Distribution> sequentialDistributions = new HashMap<>();
+        BiConsumer<List<String>, Integer> sequentialRoundSampler = createRoundSampler(sequentialDistributions);
+        SignificanceEstimator.sampleSequentially(itemsets, SAMPLE_SIZE, -1, (chunk, roundCount) -> {
+            requestedRounds.add(roundCount);
+            sequentialRoundSampler.accept(chunk, roundCount);
+        }, itemset -> true);
+        assertEquals(Arrays.asList(SAMPLE_SIZE), requestedRounds);
+
+        Map<String, Distribution> fixedDistributions = new HashMap<>();
+        createRoundSampler(fixedDistributions).accept(itemsets, SAMPLE_SIZE);
+        for (String itemset : itemsets) {
+            assertArrayEquals(fixedDistributions.get(itemset).getObservations(), sequentialDistributions.get(itemset).getObservations(), 0.0);
+        }
+    }
+
+    /**
+     * Creates a sampler that adds the standard normal value of each round, such that values depend only on the round like the {@link DistributionSampler} does.
+     *
+     * @param backgroundDistributions The sampled background distributions per itemset.
+     * @return The sampler.
+     */
+    private static BiConsumer<List<String>, Integer> createRoundSampler(Map<String, Distribution> backgroundDistributions) {
+        return (itemsets, roundCount) -> {
+            for (String itemset : itemsets) {
+                Distribution distribution = backgroundDistributions.computeIfAbsent(itemset, key -> new Distribution(CohesionMetric.class));
+                for (long round = distribution.getObservationCount(); round < roundCount; round++) {
+                    distribution.addObservationValue(ROUND_VALUES[(int) round]);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,213 @@
+package bio.fkaiser.mmm.model.metrics.cohesion;
+
+import bio.fkaiser.mmm.model.DataPoint;
+import bio.fkaiser.mmm.model.DataPointIdentifier;
+import bio.fkaiser.mmm.model.Item;
+import bio.fkaiser.mmm.model.Itemset;
+import bio.fkaiser.mmm.model.SquaredDistances;
+import de.bioforscher.singa.structure.algorithms.superimposition.fit3d.representations.RepresentationSchemeType;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author fk
+ */
+public class VertexCandidateGeneratorTest {
+
+    private static final String[] LABELS = {"A", "B", "C", "D"};
+
+    @Test
+    public void shouldGenerateObservationsLikePairwiseClosestItemSearch() {
+        Random random = new Random(42);
+        List<Item<String>> items = IntStream.range(0, 60)
+                                            .mapToObj(i -> new Item<>(LABELS[random.nextInt(LABELS.length)]))
+                                            .collect(Collectors.toList());
+        DataPoint<String> dataPoint = new DataPoint<>(items, new DataPointIdentifier("1abc"));
+        SquaredDistances squaredDistances = new PositionSquaredDistances(random, items.size());
+
+        List<Itemset<String>> itemsets = new ArrayList<>();
+        itemsets.add(Itemset.of(new Item<>("A"), new Item<>("B")));
+        itemsets.add(Itemset.of(new Item<>("A"), new Item<>("B"), new Item<>("C")));
+        itemsets.add(Itemset.of(new Item<>("B"), new Item<>("C"), new Item<>("D")));
+        itemsets.add(Itemset.of(new Item<>("A"), new Item<>("B"), new Item<>("C"), new Item<>("D")));
+
+        // nearest item tables of the data point are shared by all itemsets
+        for (Itemset<String> itemset : itemsets) {
+            assertEquals(generateReferenceCandidates(itemset, dataPoint, squaredDistances), generateCandidates(itemset, dataPoint, squaredDistances));
+        }
+
+        // changed labels have to invalidate the nearest item tables
+        for (Item<String> item : items) {
+            item.setLabel(LABELS[random.nextInt(LABELS.length)]);
+        }
+        dataPoint.invalidateLabelIndex();
+        for (Itemset<String> itemset : itemsets) {
+            assertEquals(generateReferenceCandidates(itemset, dataPoint, squaredDistances), generateCandidates(itemset, dataPoint, squaredDistances));
+        }
+    }
+
+    @Test
+    public void shouldBoundExtentsLikeUnprunedEnumeration() {
+        List<Itemset<String>> itemsets = new ArrayList<>();
+        itemsets.add(Itemset.of(new Item<>("A"), new Item<>("B")));
+        itemsets.add(Itemset.of(new Item<>("A"), new Item<>("B"), new Item<>("C")));
+        itemsets.add(Itemset.of(new Item<>("A"), new Item<>("B"), new Item<>("C"), new Item<>("D")));
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            List<Item<String>> items = IntStream.range(0, 40)
+                                                .mapToObj(i -> new Item<>(LABELS[random.nextInt(LABELS.length)]))
+                                                .collect(Collectors.toList());
+            DataPoint<String> dataPoint = new DataPoint<>(items, new DataPointIdentifier("1abc"));
+            SquaredDistances squaredDistances = new PositionSquaredDistances(random, items.size());
+            for (Itemset<String> itemset : itemsets) {
+                for (boolean vertexOne : new boolean[]{false, true}) {
+                    VertexCandidateGenerator<String> candidateGenerator = new VertexCandidateGenerator<>(itemset, dataPoint, squaredDistances, vertexOne);
+                    List<ItemsetObservation<String>> observations = candidateGenerator.generateObservations();
+
+                    // the first observation of minimal extent is found with tightening bounds
+                    Optional<ItemsetObservation<String>> minimalExtentObservation = observations.stream()
+                                                                                                .min(Comparator.comparingDouble(ItemsetObservation::getSquaredExtent));
+                    assertEquals(minimalExtentObservation, candidateGenerator.findMinimalExtentObservation());
+
+                    // fixed bounds like the adherence limit only omit observations of larger extent
+                    for (double squaredExtentLimit : new double[]{50.0, 150.0, 400.0}) {
+                        List<ItemsetObservation<String>> boundedObservations = observations.stream()
+                                                                                           .filter(observation -> observation.getSquaredExtent() < squaredExtentLimit)
+                                                                                           .collect(Collectors.toList());
+                        assertEquals(boundedObservations, candidateGenerator.generateObservations(squaredExtentLimit));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldAnchorRarestLabel() {
+        // label frequencies are skewed such that the rarest label is the last one in natural order
+        Random random = new Random(42);
+        List<Item<String>> items = new ArrayList<>();
+        int[] labelCounts = {40, 15, 6, 2};
+        for (int i = 0; i < LABELS.length; i++) {
+            for (int j = 0; j < labelCounts[i]; j++) {
+                items.add(new Item<>(LABELS[i]));
+            }
+        }
+        Collections.shuffle(items, random);
+        DataPoint<String> dataPoint = new DataPoint<>(items, new DataPointIdentifier("1abc"));
+        SquaredDistances squaredDistances = new PositionSquaredDistances(random, items.size());
+
+        Itemset<String> itemset = Itemset.of(new Item<>("A"), new Item<>("B"), new Item<>("C"), new Item<>("D"));
+        // lookup order does not change the observations of VertexAll
+        assertEquals(generateReferenceCandidates(itemset, dataPoint, squaredDistances), generateCandidates(itemset, dataPoint, squaredDistances));
+        // VertexOne observes the itemset around each occurrence of the rarest label
+        Set<List<Integer>> referenceCandidates = generateReferenceCandidates(itemset, dataPoint, squaredDistances, Collections.singleton("D"));
+        assertEquals(labelCounts[3], referenceCandidates.size());
+        assertEquals(referenceCandidates, new VertexCandidateGenerator<>(itemset, dataPoint, squaredDistances, true).generateObservations().stream()
+                                                                                                                  .map(VertexCandidateGeneratorTest::toList)
+                                                                                                                  .collect(Collectors.toSet()));
+    }
+
+    private static Set<List<Integer>> generateCandidates(Itemset<String> itemset, DataPoint<String> dataPoint, SquaredDistances squaredDistances) {
+        return new VertexCandidateGenerator<>(itemset, dataPoint, squaredDistances, false).generateObservations().stream()
+                                                                                           .map(VertexCandidateGeneratorTest::toList)
+                                                                                           .collect(Collectors.toSet());
+    }
+
+    private static List<Integer> toList(ItemsetObservation<String> observation) {
+        return Arrays.stream(observation.getItemIndices())
+                     .boxed()
+                     .collect(Collectors.toList());
+    }
+
+    private static Set<List<Integer>> generateReferenceCandidates(Itemset<String> itemset, DataPoint<String> dataPoint,
+                                                                  SquaredDistances squaredDistances) {
+        return generateReferenceCandidates(itemset, dataPoint, squaredDistances, itemset.getItems().stream()
+                                                                                        .map(Item::getLabel)
+                                                                                        .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Generates candidates like the original VertexAll implementation: for each item of each label the closest item of every other label is
+     * searched among all items of the data point. Only items of the given anchor labels are used as starting points.
+     */
+    private static Set<List<Integer>> generateReferenceCandidates(Itemset<String> itemset, DataPoint<String> dataPoint,
+                                                                  SquaredDistances squaredDistances, Set<String> anchorLabels) {
+        List<Item<String>> dataPointItems = dataPoint.getItems();
+        Set<List<Integer>> candidates = new HashSet<>();
+        for (Item<String> itemsetItem : itemset.getItems()) {
+            if (!anchorLabels.contains(itemsetItem.getLabel())) {
+                continue;
+            }
+            for (int itemOne = 0; itemOne < dataPointItems.size(); itemOne++) {
+                if (!dataPointItems.get(itemOne).getLabel().equals(itemsetItem.getLabel())) {
+                    continue;
+                }
+                TreeSet<Integer> candidate = new TreeSet<>();
+                candidate.add(itemOne);
+                for (Item<String> otherItem : itemset.getItems()) {
+                    if (otherItem.equals(itemsetItem)) {
+                        continue;
+                    }
+                    int closestItem = -1;
+                    float closestSquaredDistance = Float.MAX_VALUE;
+                    for (int itemTwo = 0; itemTwo < dataPointItems.size(); itemTwo++) {
+                        if (dataPointItems.get(itemTwo).getLabel().equals(otherItem.getLabel())
+                            && squaredDistances.getSquaredDistance(itemOne, itemTwo) < closestSquaredDistance) {
+                            closestSquaredDistance = squaredDistances.getSquaredDistance(itemOne, itemTwo);
+                            closestItem = itemTwo;
+                        }
+                    }
+                    if (closestItem == -1) {
+                        return Collections.emptySet();
+                    }
+                    candidate.add(closestItem);
+                }
+                candidates.add(new ArrayList<>(candidate));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Squared distances of random positions that do not require structures.
+     */
+    private static class PositionSquaredDistances implements SquaredDistances {
+
+        private final double[][] positions;
+
+        private PositionSquaredDistances(Random random, int size) {
+            positions = new double[size][];
+            for (int i = 0; i < size; i++) {
+                positions[i] = new double[]{random.nextDouble() * 30, random.nextDouble() * 30, random.nextDouble() * 30};
+            }
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+
+        @Override
+        public RepresentationSchemeType getRepresentationSchemeType() {
+            return null;
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 24L * positions.length;
+        }
+
+        @Override
+        public float getSquaredDistance(int i, int j) {
+            double dx = positions[i][0] - positions[j][0];
+            double dy = positions[i][1] - positions[j][1];
+            double dz = positions[i][2] - positions[j][2];
+            return (float) (dx * dx + dy * dy + dz * dz);
+        }
+    }
+}